@@ -0,0 +1,122 @@
+package app.wako.plugins.videoplayer.Components;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.media3.common.Format;
+import androidx.media3.common.Player;
+import androidx.media3.common.TrackGroup;
+import androidx.media3.common.util.UnstableApi;
+import androidx.media3.exoplayer.DecoderCounters;
+import androidx.media3.exoplayer.DecoderReuseEvaluation;
+import androidx.media3.exoplayer.analytics.AnalyticsListener;
+
+import java.util.Objects;
+
+import app.wako.plugins.videoplayer.Utilities.TrackIndex;
+
+/**
+ * Measures the latency of an audio track switch, from the switch request to the first
+ * sample of the new track reaching the audio decoder, whether playback stalled meanwhile and
+ * whether the video renderer kept its stream.
+ * Must be used from the main thread, which is the application looper of the players.
+ */
+@UnstableApi
+public class AudioSwitchMonitor implements AnalyticsListener {
+
+    // A switch whose audio never arrives is abandoned after this delay
+    private static final long TIMEOUT_MS = 10000;
+
+    /**
+     * Receives the end of each switch.
+     */
+    public interface Listener {
+        void onAudioSwitched(Format format, long latencyMs, boolean rebuffered, boolean videoKept);
+
+        void onAudioSwitchAbandoned();
+    }
+
+    private final Listener listener;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private TrackGroup targetGroup;
+    private long switchStartMs;
+    private boolean rebuffered;
+    private boolean videoKept;
+
+    public AudioSwitchMonitor(Listener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Starts measuring a switch, replacing the one in progress if any.
+     *
+     * @param trackGroup The audio track group switched to
+     */
+    public void begin(TrackGroup trackGroup) {
+        targetGroup = trackGroup;
+        switchStartMs = SystemClock.elapsedRealtime();
+        rebuffered = false;
+        videoKept = true;
+        handler.removeCallbacks(timeoutRunnable);
+        handler.postDelayed(timeoutRunnable, TIMEOUT_MS);
+    }
+
+    /**
+     * Forgets the switch in progress, if any, without notifying the listener.
+     */
+    public void cancel() {
+        handler.removeCallbacks(timeoutRunnable);
+        targetGroup = null;
+    }
+
+    @Override
+    public void onPlaybackStateChanged(@NonNull EventTime eventTime, int state) {
+        if (targetGroup != null && state == Player.STATE_BUFFERING) {
+            rebuffered = true;
+        }
+    }
+
+    @Override
+    public void onVideoDisabled(@NonNull EventTime eventTime, @NonNull DecoderCounters decoderCounters) {
+        // The video renderer is only disabled when its stream is replaced, which drops its buffer
+        if (targetGroup != null) {
+            videoKept = false;
+        }
+    }
+
+    @Override
+    public void onAudioInputFormatChanged(@NonNull EventTime eventTime, @NonNull Format format, @Nullable DecoderReuseEvaluation decoderReuseEvaluation) {
+        if (targetGroup == null || !belongsToTarget(format)) {
+            return;
+        }
+        long latencyMs = SystemClock.elapsedRealtime() - switchStartMs;
+        cancel();
+        listener.onAudioSwitched(format, latencyMs, rebuffered, videoKept);
+    }
+
+    private boolean belongsToTarget(Format format) {
+        for (int i = 0; i < targetGroup.length; i++) {
+            if (format.id != null && format.id.equals(targetGroup.getFormat(i).id)) {
+                return true;
+            }
+        }
+        // Sample formats do not always keep the id of the manifest, fall back to the language
+        return format.language != null && Objects.equals(
+                TrackIndex.normalizeLanguage(format.language),
+                TrackIndex.normalizeLanguage(targetGroup.getFormat(0).language));
+    }
+
+    private final Runnable timeoutRunnable = new Runnable() {
+        @Override
+        public void run() {
+            if (targetGroup == null) {
+                return;
+            }
+            targetGroup = null;
+            listener.onAudioSwitchAbandoned();
+        }
+    };
+}
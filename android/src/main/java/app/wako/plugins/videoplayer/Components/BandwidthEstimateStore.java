@@ -0,0 +1,128 @@
+package app.wako.plugins.videoplayer.Components;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.net.ConnectivityManager;
+import android.net.Network;
+import android.net.NetworkCapabilities;
+import android.util.Log;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Persists the last converged bandwidth estimate of each network type so that a new player
+ * starts adaptive bitrate selection from it instead of the generic initial estimate.
+ * Networks are told apart by transport only (Wi-Fi, cellular, ethernet): two Wi-Fi networks
+ * share their estimate, as their names are not readable without location permission.
+ * The preferences are read and written on a background thread, players read the estimates
+ * kept in memory and start without one until the first read is done.
+ */
+public class BandwidthEstimateStore {
+
+    private static final String TAG = BandwidthEstimateStore.class.getName();
+    private static final String PREFS_NAME = "wako_bandwidth_estimates";
+
+    private static final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private static final Map<String, Long> estimates = new ConcurrentHashMap<>();
+    private static boolean warmUpStarted;
+
+    private BandwidthEstimateStore() {}
+
+    /**
+     * Starts reading the stored estimates in the background, does nothing after the first call.
+     *
+     * @param context The Android context
+     */
+    public static synchronized void warmUp(Context context) {
+        if (warmUpStarted) {
+            return;
+        }
+        warmUpStarted = true;
+        final Context appContext = context.getApplicationContext();
+        executor.execute(() -> {
+            SharedPreferences preferences = getPreferences(appContext);
+            SharedPreferences.Editor editor = preferences.edit();
+            for (Map.Entry<String, ?> entry : preferences.getAll().entrySet()) {
+                if (entry.getKey().contains(":")) {
+                    // Estimates of single Wi-Fi networks were keyed by an SSID hash, they are not read anymore
+                    editor.remove(entry.getKey());
+                } else if (entry.getValue() instanceof Long) {
+                    // An estimate saved since the warm up started is newer than the stored one
+                    estimates.putIfAbsent(entry.getKey(), (Long) entry.getValue());
+                }
+            }
+            editor.apply();
+            Log.d(TAG, "Loaded " + estimates.size() + " bandwidth estimates");
+        });
+    }
+
+    /**
+     * Returns the estimate stored for the current network type, without reading the disk.
+     *
+     * @param context The Android context
+     * @return The estimate in bits per second or 0 if none is stored or the estimates are not read yet
+     */
+    public static long load(Context context) {
+        warmUp(context);
+        String networkKey = getNetworkKey(context);
+        if (networkKey == null) {
+            return 0;
+        }
+        Long estimate = estimates.get(networkKey);
+        return estimate != null ? estimate : 0;
+    }
+
+    /**
+     * Stores the estimate for the current network type.
+     *
+     * @param context         The Android context
+     * @param bitrateEstimate The estimate in bits per second
+     */
+    public static void save(Context context, long bitrateEstimate) {
+        String networkKey = getNetworkKey(context);
+        if (networkKey == null || bitrateEstimate <= 0) {
+            return;
+        }
+        estimates.put(networkKey, bitrateEstimate);
+        final Context appContext = context.getApplicationContext();
+        executor.execute(() -> getPreferences(appContext).edit().putLong(networkKey, bitrateEstimate).apply());
+        Log.d(TAG, "Saved bandwidth estimate " + bitrateEstimate + "bps for " + networkKey);
+    }
+
+    private static SharedPreferences getPreferences(Context context) {
+        return context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+    }
+
+    /**
+     * Builds a key identifying the transport of the active network, or null when offline.
+     */
+    private static String getNetworkKey(Context context) {
+        try {
+            ConnectivityManager connectivityManager = (ConnectivityManager) context.getApplicationContext().getSystemService(Context.CONNECTIVITY_SERVICE);
+            if (connectivityManager == null) {
+                return null;
+            }
+            Network network = connectivityManager.getActiveNetwork();
+            NetworkCapabilities capabilities = network != null ? connectivityManager.getNetworkCapabilities(network) : null;
+            if (capabilities == null) {
+                return null;
+            }
+            if (capabilities.hasTransport(NetworkCapabilities.TRANSPORT_ETHERNET)) {
+                return "ethernet";
+            }
+            if (capabilities.hasTransport(NetworkCapabilities.TRANSPORT_WIFI)) {
+                return "wifi";
+            }
+            if (capabilities.hasTransport(NetworkCapabilities.TRANSPORT_CELLULAR)) {
+                return "cellular";
+            }
+            return "other";
+        } catch (Exception e) {
+            Log.e(TAG, "Error reading network type", e);
+            return null;
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package app.wako.plugins.videoplayer.Components;
+
+import android.app.ActivityManager;
+import android.content.Context;
+import android.util.Log;
+
+import androidx.media3.common.util.UnstableApi;
+import androidx.media3.exoplayer.DefaultLoadControl;
+
+import java.util.Locale;
+
+/**
+ * Buffering policies selectable through the bufferProfile option of initPlayer.
+ * The "auto" profile only picks the small buffer of low-RAM devices, like 2GB TV sticks,
+ * every other device keeps the default buffer of the player. Prefetching further is only
+ * done on request.
+ */
+@UnstableApi
+public class BufferProfile {
+
+    private static final String TAG = BufferProfile.class.getName();
+
+    public static final String LOW_LATENCY = "lowLatency";
+    public static final String BALANCED = "balanced";
+    public static final String AGGRESSIVE_PREFETCH = "aggressivePrefetch";
+    public static final String LOW_MEMORY = "lowMemory";
+    public static final String AUTO = "auto";
+
+    // Memory class threshold in megabytes used by the auto profile, ordinary phones are above
+    private static final int LOW_MEMORY_CLASS_MB = 128;
+
+    private static final int BYTES_PER_MB = 1024 * 1024;
+
+    private BufferProfile() {}
+
+    /**
+     * Resolves a requested profile name to one of the concrete profiles.
+     * Unknown names and "auto" are resolved from the device memory, to LOW_MEMORY or BALANCED.
+     *
+     * @param context The Android context
+     * @param profile The requested profile, may be null
+     * @return One of LOW_LATENCY, BALANCED, AGGRESSIVE_PREFETCH or LOW_MEMORY
+     */
+    public static String resolve(Context context, String profile) {
+        if (LOW_LATENCY.equals(profile) || BALANCED.equals(profile) || AGGRESSIVE_PREFETCH.equals(profile) || LOW_MEMORY.equals(profile)) {
+            return profile;
+        }
+        if (profile != null && !AUTO.equals(profile)) {
+            Log.w(TAG, "Unknown buffer profile " + profile + ", using " + AUTO);
+        }
+
+        ActivityManager activityManager = (ActivityManager) context.getSystemService(Context.ACTIVITY_SERVICE);
+        if (activityManager == null) {
+            return BALANCED;
+        }
+        int memoryClass = activityManager.getMemoryClass();
+        String resolved = activityManager.isLowRamDevice() || memoryClass <= LOW_MEMORY_CLASS_MB ? LOW_MEMORY : BALANCED;
+        Log.d(TAG, String.format(Locale.ROOT, "Memory class %dMB, low RAM %b, using buffer profile %s", memoryClass, activityManager.isLowRamDevice(), resolved));
+        return resolved;
+    }
+
+    /**
+     * Builds the load control of a resolved profile.
+     * lowLatency and aggressivePrefetch keep a back buffer so short rewinds do not hit the
+     * network, balanced is the default load control of the player.
+     *
+     * @param profile A profile returned by {@link #resolve}
+     * @return The load control to give to the player builder
+     */
+    public static PreloadLoadControl buildLoadControl(String profile) {
+        // Defaults of new DefaultLoadControl()
+        int minBufferMs = DefaultLoadControl.DEFAULT_MIN_BUFFER_MS;
+        int maxBufferMs = DefaultLoadControl.DEFAULT_MAX_BUFFER_MS;
+        int bufferForPlaybackMs = DefaultLoadControl.DEFAULT_BUFFER_FOR_PLAYBACK_MS;
+        int bufferForPlaybackAfterRebufferMs = DefaultLoadControl.DEFAULT_BUFFER_FOR_PLAYBACK_AFTER_REBUFFER_MS;
+        int targetBufferBytes = DefaultLoadControl.DEFAULT_TARGET_BUFFER_BYTES;
+        boolean prioritizeTimeOverSizeThresholds = DefaultLoadControl.DEFAULT_PRIORITIZE_TIME_OVER_SIZE_THRESHOLDS;
+        int backBufferDurationMs = DefaultLoadControl.DEFAULT_BACK_BUFFER_DURATION_MS;
+        boolean retainBackBufferFromKeyframe = DefaultLoadControl.DEFAULT_RETAIN_BACK_BUFFER_FROM_KEYFRAME;
+        switch (profile) {
+            case LOW_LATENCY:
+                // Start as soon as possible, keep a short buffer ahead
+                minBufferMs = 15000;
+                maxBufferMs = 30000;
+                bufferForPlaybackMs = 1000;
+                bufferForPlaybackAfterRebufferMs = 2000;
+                backBufferDurationMs = 10000;
+                retainBackBufferFromKeyframe = true;
+                break;
+            case AGGRESSIVE_PREFETCH:
+                // Buffer far ahead so network drops do not stall playback, within the byte cap
+                // so that high bitrate streams stop before 256MB instead of reaching 60s
+                minBufferMs = 60000;
+                maxBufferMs = 180000;
+                targetBufferBytes = 256 * BYTES_PER_MB;
+                prioritizeTimeOverSizeThresholds = false;
+                backBufferDurationMs = 60000;
+                retainBackBufferFromKeyframe = true;
+                break;
+            case LOW_MEMORY:
+                // Cap the buffer in bytes, high bitrate streams must not exhaust the heap
+                minBufferMs = 15000;
+                maxBufferMs = 30000;
+                targetBufferBytes = 32 * BYTES_PER_MB;
+                prioritizeTimeOverSizeThresholds = false;
+                backBufferDurationMs = 0;
+                retainBackBufferFromKeyframe = false;
+                break;
+            case BALANCED:
+            default:
+                // Same as new DefaultLoadControl(), which every device used before the profiles
+                break;
+        }
+        return new PreloadLoadControl(minBufferMs, maxBufferMs, bufferForPlaybackMs, bufferForPlaybackAfterRebufferMs,
+                targetBufferBytes, prioritizeTimeOverSizeThresholds, backBufferDurationMs, retainBackBufferFromKeyframe);
+    }
+}
@@ -0,0 +1,132 @@
+package app.wako.plugins.videoplayer.Components;
+
+import android.content.Context;
+
+import androidx.annotation.NonNull;
+import androidx.media3.common.C;
+import androidx.media3.common.Format;
+import androidx.media3.common.util.Consumer;
+import androidx.media3.common.util.UnstableApi;
+import androidx.media3.extractor.text.CuesWithTiming;
+import androidx.media3.extractor.text.DefaultSubtitleParserFactory;
+import androidx.media3.extractor.text.SubtitleParser;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Subtitle parser factory reusing the cues parsed in a previous session.
+ * Only external subtitles, whose format id is their url, are cached: the key is a hash of
+ * the url and of the file content, so an updated file is parsed again. Subtitles embedded
+ * in the stream are handed to the default parsers unchanged.
+ * The cues of external subtitles are also kept as a SubtitleTimeline for re-timing.
+ */
+@UnstableApi
+public class CachingSubtitleParserFactory implements SubtitleParser.Factory {
+
+    private final SubtitleParser.Factory delegate = new DefaultSubtitleParserFactory();
+
+    public CachingSubtitleParserFactory(Context context) {
+        SubtitleCache.init(context);
+    }
+
+    @Override
+    public boolean supportsFormat(@NonNull Format format) {
+        return delegate.supportsFormat(format);
+    }
+
+    @Override
+    public int getCueReplacementBehavior(@NonNull Format format) {
+        return delegate.getCueReplacementBehavior(format);
+    }
+
+    @NonNull
+    @Override
+    public SubtitleParser create(@NonNull Format format) {
+        SubtitleParser parser = delegate.create(format);
+        if (!isExternalSubtitle(format)) {
+            return parser;
+        }
+        return new CachingSubtitleParser(parser, format.id);
+    }
+
+    private static boolean isExternalSubtitle(Format format) {
+        return format.id != null && format.id.contains("://");
+    }
+
+    private static final class CachingSubtitleParser implements SubtitleParser {
+        private final SubtitleParser parser;
+        private final String url;
+
+        CachingSubtitleParser(SubtitleParser parser, String url) {
+            this.parser = parser;
+            this.url = url;
+        }
+
+        @Override
+        public void parse(@NonNull byte[] data, int offset, int length, @NonNull OutputOptions outputOptions, @NonNull Consumer<CuesWithTiming> output) {
+            String key = buildKey(data, offset, length);
+            List<CuesWithTiming> cues = key != null ? SubtitleCache.get(key) : null;
+            if (cues == null) {
+                // Parse every cue once, the output options are applied when replaying them
+                List<CuesWithTiming> parsedCues = new ArrayList<>();
+                parser.parse(data, offset, length, OutputOptions.allCues(), parsedCues::add);
+                cues = parsedCues;
+                if (key != null) {
+                    SubtitleCache.put(key, cues);
+                }
+            }
+            SubtitleTimeline.register(url, key, cues);
+            emit(cues, outputOptions, output);
+        }
+
+        @Override
+        public int getCueReplacementBehavior() {
+            return parser.getCueReplacementBehavior();
+        }
+
+        @Override
+        public void reset() {
+            parser.reset();
+        }
+
+        /**
+         * Outputs the cues from the requested start time, followed by the earlier ones
+         * when all cues are requested, as the parsers do.
+         */
+        private static void emit(List<CuesWithTiming> cues, OutputOptions outputOptions, Consumer<CuesWithTiming> output) {
+            long startTimeUs = outputOptions.startTimeUs;
+            List<CuesWithTiming> earlierCues = new ArrayList<>();
+            for (CuesWithTiming cuesWithTiming : cues) {
+                if (startTimeUs == C.TIME_UNSET || cuesWithTiming.endTimeUs == C.TIME_UNSET || cuesWithTiming.endTimeUs > startTimeUs) {
+                    output.accept(cuesWithTiming);
+                } else {
+                    earlierCues.add(cuesWithTiming);
+                }
+            }
+            if (outputOptions.outputAllCues) {
+                for (CuesWithTiming cuesWithTiming : earlierCues) {
+                    output.accept(cuesWithTiming);
+                }
+            }
+        }
+
+        private String buildKey(byte[] data, int offset, int length) {
+            try {
+                MessageDigest digest = MessageDigest.getInstance("SHA-1");
+                digest.update(url.getBytes(StandardCharsets.UTF_8));
+                digest.update(data, offset, length);
+                StringBuilder key = new StringBuilder();
+                for (byte b : digest.digest()) {
+                    key.append(String.format(Locale.ROOT, "%02x", b));
+                }
+                return key.toString();
+            } catch (Exception e) {
+                return null;
+            }
+        }
+    }
+}
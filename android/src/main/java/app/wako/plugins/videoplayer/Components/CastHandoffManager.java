@@ -0,0 +1,195 @@
+package app.wako.plugins.videoplayer.Components;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.media3.cast.CastPlayer;
+import androidx.media3.common.util.UnstableApi;
+import androidx.media3.exoplayer.ExoPlayer;
+
+import com.google.android.gms.cast.framework.CastSession;
+import com.google.android.gms.cast.framework.SessionManager;
+import com.google.android.gms.cast.framework.SessionManagerListener;
+
+/**
+ * Hands the playback position over between the local player and the cast receiver.
+ * While casting, the position reported by the receiver is followed, and during a grace
+ * period the paused local player is kept near it so that its buffer stays warm. When the
+ * session starts ending, the local player is moved to the last receiver position so it
+ * prebuffers there, and playback resumes from that position instead of a cold rebuffer.
+ * Must be used from the main thread, where the cast framework calls its listeners.
+ */
+@UnstableApi
+public class CastHandoffManager implements SessionManagerListener<CastSession> {
+
+    private static final String TAG = "CastHandoffManager";
+
+    // Interval between two reads of the receiver position
+    private static final long POLL_INTERVAL_MS = 1000;
+    // The local buffer follows the receiver during this period after casting starts
+    private static final long GRACE_PERIOD_MS = 30000;
+    // The local player is moved when it is further than this from the receiver
+    private static final long MAX_DRIFT_MS = 5000;
+    // Playback resumes at the receiver position within this tolerance, seeking in a warm buffer is cheap
+    private static final long RESUME_TOLERANCE_MS = 500;
+
+    private final CastPlayer castPlayer;
+    private final SessionManager sessionManager;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private ExoPlayer localPlayer;
+    private boolean casting = false;
+    private long castStartRealtimeMs;
+    private long receiverPositionMs;
+    private long receiverReportRealtimeMs;
+    private boolean receiverPlaying;
+
+    public CastHandoffManager(CastPlayer castPlayer, SessionManager sessionManager) {
+        this.castPlayer = castPlayer;
+        this.sessionManager = sessionManager;
+        sessionManager.addSessionManagerListener(this, CastSession.class);
+    }
+
+    /**
+     * Pauses the local player, which keeps its buffer, and starts following the receiver.
+     *
+     * @param localPlayer The local player
+     * @return The position at which the receiver must start
+     */
+    public long onCastStarted(ExoPlayer localPlayer) {
+        this.localPlayer = localPlayer;
+        localPlayer.setPlayWhenReady(false);
+        casting = true;
+        castStartRealtimeMs = SystemClock.elapsedRealtime();
+        report(localPlayer.getCurrentPosition(), false);
+        handler.removeCallbacks(pollRunnable);
+        handler.postDelayed(pollRunnable, POLL_INTERVAL_MS);
+        return receiverPositionMs;
+    }
+
+    /**
+     * Stops following the receiver and moves the local player to its last position, if not
+     * already prebuffered there.
+     *
+     * @return The position at which the local player resumes
+     */
+    public long onCastEnded() {
+        handler.removeCallbacks(pollRunnable);
+        if (!casting) {
+            return localPlayer != null ? localPlayer.getCurrentPosition() : 0;
+        }
+        casting = false;
+        long positionMs = getReceiverPositionMs();
+        prebuffer(positionMs, RESUME_TOLERANCE_MS);
+        return positionMs;
+    }
+
+    /**
+     * @return The receiver position, extrapolated from its last report while it plays
+     */
+    public long getReceiverPositionMs() {
+        if (!receiverPlaying) {
+            return receiverPositionMs;
+        }
+        return receiverPositionMs + SystemClock.elapsedRealtime() - receiverReportRealtimeMs;
+    }
+
+    /**
+     * Stops following the receiver and the cast sessions.
+     */
+    public void release() {
+        handler.removeCallbacks(pollRunnable);
+        sessionManager.removeSessionManagerListener(this, CastSession.class);
+        casting = false;
+        localPlayer = null;
+    }
+
+    @Override
+    public void onSessionEnding(@NonNull CastSession session) {
+        if (!casting) {
+            return;
+        }
+        // Last moment the receiver position can be read, start buffering there right away
+        poll();
+        prebuffer(getReceiverPositionMs(), RESUME_TOLERANCE_MS);
+    }
+
+    @Override
+    public void onSessionEnded(@NonNull CastSession session, int error) {
+    }
+
+    @Override
+    public void onSessionStarting(@NonNull CastSession session) {
+    }
+
+    @Override
+    public void onSessionStarted(@NonNull CastSession session, @NonNull String sessionId) {
+    }
+
+    @Override
+    public void onSessionStartFailed(@NonNull CastSession session, int error) {
+    }
+
+    @Override
+    public void onSessionResuming(@NonNull CastSession session, @NonNull String sessionId) {
+    }
+
+    @Override
+    public void onSessionResumed(@NonNull CastSession session, boolean wasSuspended) {
+    }
+
+    @Override
+    public void onSessionResumeFailed(@NonNull CastSession session, int error) {
+    }
+
+    @Override
+    public void onSessionSuspended(@NonNull CastSession session, int reason) {
+    }
+
+    private void report(long positionMs, boolean playing) {
+        receiverPositionMs = positionMs;
+        receiverPlaying = playing;
+        receiverReportRealtimeMs = SystemClock.elapsedRealtime();
+    }
+
+    /**
+     * Reads the receiver position, the last report is kept once the session is gone.
+     */
+    private void poll() {
+        try {
+            if (castPlayer.isCastSessionAvailable()) {
+                report(castPlayer.getCurrentPosition(), castPlayer.isPlaying());
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Error reading the receiver position", e);
+        }
+    }
+
+    /**
+     * Moves the paused local player to a position so it buffers there, unless it is close.
+     */
+    private void prebuffer(long positionMs, long toleranceMs) {
+        if (localPlayer == null) {
+            return;
+        }
+        if (Math.abs(localPlayer.getCurrentPosition() - positionMs) > toleranceMs) {
+            localPlayer.seekTo(positionMs);
+        }
+    }
+
+    private final Runnable pollRunnable = new Runnable() {
+        @Override
+        public void run() {
+            if (!casting) {
+                return;
+            }
+            poll();
+            if (SystemClock.elapsedRealtime() - castStartRealtimeMs < GRACE_PERIOD_MS) {
+                prebuffer(getReceiverPositionMs(), MAX_DRIFT_MS);
+            }
+            handler.postDelayed(this, POLL_INTERVAL_MS);
+        }
+    };
+}
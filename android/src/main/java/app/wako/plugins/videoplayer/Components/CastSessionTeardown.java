@@ -0,0 +1,139 @@
+package app.wako.plugins.videoplayer.Components;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import com.google.android.gms.cast.framework.CastSession;
+import com.google.android.gms.cast.framework.SessionManager;
+import com.google.android.gms.cast.framework.SessionManagerListener;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Ends the cast session left by a previous video without blocking the main thread.
+ * The end is requested at once and reported by the SessionManagerListener callbacks, the
+ * work that must not see the old session, like the cast listeners of the new video, waits
+ * for it while the local player is built meanwhile.
+ * Must be used from the main thread, where the cast framework calls its listeners.
+ */
+public class CastSessionTeardown implements SessionManagerListener<CastSession> {
+
+    private static final String TAG = "CastSessionTeardown";
+
+    // A session whose end is never reported is considered ended after this delay
+    private static final long TIMEOUT_MS = 3000;
+
+    private final SessionManager sessionManager;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final List<Runnable> pendingTasks = new ArrayList<>();
+    private boolean ended = false;
+
+    private CastSessionTeardown(SessionManager sessionManager) {
+        this.sessionManager = sessionManager;
+    }
+
+    /**
+     * Requests the end of the current cast session, if any.
+     *
+     * @param sessionManager The session manager of the cast context
+     * @return The teardown, already ended when there was no session
+     */
+    public static CastSessionTeardown start(SessionManager sessionManager) {
+        CastSessionTeardown teardown = new CastSessionTeardown(sessionManager);
+        if (sessionManager.getCurrentCastSession() == null) {
+            teardown.ended = true;
+            return teardown;
+        }
+        Log.d(TAG, "Detected active cast session, ending it for new video");
+        sessionManager.addSessionManagerListener(teardown, CastSession.class);
+        teardown.handler.postDelayed(teardown.timeoutRunnable, TIMEOUT_MS);
+        // Stop current session so new video takes over
+        sessionManager.endCurrentSession(true);
+        return teardown;
+    }
+
+    public boolean isEnded() {
+        return ended;
+    }
+
+    /**
+     * Runs a task once the session has ended, at once if it already has.
+     *
+     * @param task The task to run on the main thread
+     */
+    public void runWhenEnded(Runnable task) {
+        if (ended) {
+            task.run();
+        } else {
+            pendingTasks.add(task);
+        }
+    }
+
+    /**
+     * Stops waiting for the end of the session, the pending tasks are dropped.
+     */
+    public void cancel() {
+        pendingTasks.clear();
+        finish();
+    }
+
+    @Override
+    public void onSessionEnded(@NonNull CastSession session, int error) {
+        finish();
+    }
+
+    @Override
+    public void onSessionEnding(@NonNull CastSession session) {
+    }
+
+    @Override
+    public void onSessionStarting(@NonNull CastSession session) {
+    }
+
+    @Override
+    public void onSessionStarted(@NonNull CastSession session, @NonNull String sessionId) {
+    }
+
+    @Override
+    public void onSessionStartFailed(@NonNull CastSession session, int error) {
+    }
+
+    @Override
+    public void onSessionResuming(@NonNull CastSession session, @NonNull String sessionId) {
+    }
+
+    @Override
+    public void onSessionResumed(@NonNull CastSession session, boolean wasSuspended) {
+    }
+
+    @Override
+    public void onSessionResumeFailed(@NonNull CastSession session, int error) {
+    }
+
+    @Override
+    public void onSessionSuspended(@NonNull CastSession session, int reason) {
+    }
+
+    private void finish() {
+        if (ended) {
+            return;
+        }
+        ended = true;
+        handler.removeCallbacks(timeoutRunnable);
+        sessionManager.removeSessionManagerListener(this, CastSession.class);
+        List<Runnable> tasks = new ArrayList<>(pendingTasks);
+        pendingTasks.clear();
+        for (Runnable task : tasks) {
+            task.run();
+        }
+    }
+
+    private final Runnable timeoutRunnable = () -> {
+        Log.w(TAG, "Cast session end not reported, continuing");
+        finish();
+    };
+}
@@ -0,0 +1,249 @@
+package app.wako.plugins.videoplayer.Components;
+
+import android.content.Context;
+import android.net.Uri;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.media3.common.util.UnstableApi;
+import androidx.media3.database.StandaloneDatabaseProvider;
+import androidx.media3.datasource.DataSource;
+import androidx.media3.datasource.DataSpec;
+import androidx.media3.datasource.DefaultDataSource;
+import androidx.media3.datasource.TransferListener;
+import androidx.media3.datasource.cache.CacheDataSource;
+import androidx.media3.datasource.cache.LeastRecentlyUsedCacheEvictor;
+import androidx.media3.datasource.cache.SimpleCache;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Process-wide, LRU-evicted disk cache for media segments.
+ * The cache is shared by every player instance so replays, rewinds past the buffer
+ * and reopening the same video are served from disk instead of the network.
+ * Manifests and local files always bypass the cache.
+ */
+@UnstableApi
+public class MediaCache {
+
+    private static final String TAG = MediaCache.class.getName();
+    private static final String CACHE_DIRECTORY = "wako-media-cache";
+    private static final long BYTES_PER_MB = 1024L * 1024L;
+
+    public static final long DEFAULT_CACHE_SIZE_MB = 256;
+
+    private static SimpleCache cache;
+    private static long maxCacheSizeBytes;
+
+    private static final AtomicLong cacheHits = new AtomicLong();
+    private static final AtomicLong cacheMisses = new AtomicLong();
+    private static final AtomicLong bytesSaved = new AtomicLong();
+    private static final AtomicLong bytesDownloaded = new AtomicLong();
+
+    private MediaCache() {}
+
+    /**
+     * Returns the shared cache, creating it on first use.
+     * The size of an already created cache is kept for the lifetime of the process.
+     *
+     * @param context     Any context, the application context is retained
+     * @param cacheSizeMb Maximum cache size in megabytes
+     * @return The shared cache or null if it cannot be created
+     */
+    @Nullable
+    public static synchronized SimpleCache getCache(Context context, long cacheSizeMb) {
+        if (cache == null) {
+            try {
+                Context appContext = context.getApplicationContext();
+                File cacheDir = new File(appContext.getCacheDir(), CACHE_DIRECTORY);
+                maxCacheSizeBytes = cacheSizeMb * BYTES_PER_MB;
+                cache = new SimpleCache(
+                        cacheDir,
+                        new LeastRecentlyUsedCacheEvictor(maxCacheSizeBytes),
+                        new StandaloneDatabaseProvider(appContext)
+                );
+                Log.d(TAG, "Media cache created with " + cacheSizeMb + "MB in " + cacheDir);
+            } catch (Exception e) {
+                Log.e(TAG, "Error creating media cache", e);
+                cache = null;
+            }
+        } else if (cacheSizeMb * BYTES_PER_MB != maxCacheSizeBytes) {
+            Log.d(TAG, "Media cache already created with " + (maxCacheSizeBytes / BYTES_PER_MB) + "MB, ignoring " + cacheSizeMb + "MB");
+        }
+        return cache;
+    }
+
+    /**
+     * Builds the data source factory used by the player's media source factory.
+     * Falls back to a plain data source when the cache is disabled or unavailable.
+     *
+     * @param context     The Android context
+     * @param cacheSizeMb Maximum cache size in megabytes, 0 disables the cache
+     * @return A data source factory reading through the shared cache
+     */
+    public static DataSource.Factory buildDataSourceFactory(Context context, long cacheSizeMb) {
+        DefaultDataSource.Factory upstreamFactory = new DefaultDataSource.Factory(context)
+                .setTransferListener(networkListener);
+
+        SimpleCache sharedCache = cacheSizeMb > 0 ? getCache(context, cacheSizeMb) : null;
+        if (sharedCache == null) {
+            return upstreamFactory;
+        }
+
+        CacheDataSource.Factory cacheFactory = new CacheDataSource.Factory()
+                .setCache(sharedCache)
+                .setUpstreamDataSourceFactory(upstreamFactory)
+                .setFlags(CacheDataSource.FLAG_IGNORE_CACHE_ON_ERROR)
+                .setEventListener(cacheListener);
+
+        return () -> new SelectiveCacheDataSource(cacheFactory.createDataSource(), upstreamFactory.createDataSource());
+    }
+
+    /**
+     * Returns the cache counters accumulated since the process started.
+     *
+     * @return Hits, misses, saved and downloaded bytes, and current cache usage
+     */
+    public static synchronized Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("enabled", cache != null);
+        stats.put("hits", cacheHits.get());
+        stats.put("misses", cacheMisses.get());
+        stats.put("bytesSaved", bytesSaved.get());
+        stats.put("bytesDownloaded", bytesDownloaded.get());
+        stats.put("cacheSizeBytes", cache != null ? cache.getCacheSpace() : 0L);
+        stats.put("maxCacheSizeBytes", cache != null ? maxCacheSizeBytes : 0L);
+        return stats;
+    }
+
+    /**
+     * Releases the shared cache. Must only be called once no player uses it anymore.
+     */
+    public static synchronized void release() {
+        if (cache != null) {
+            try {
+                cache.release();
+            } catch (Exception e) {
+                Log.e(TAG, "Error releasing media cache", e);
+            }
+            cache = null;
+        }
+    }
+
+    /**
+     * Whether the content behind a uri may be cached.
+     * Manifests are excluded since live playlists change between reloads,
+     * local content is excluded since it is already on the device.
+     */
+    private static boolean isCacheable(@Nullable Uri uri) {
+        if (uri == null) {
+            return false;
+        }
+        String scheme = uri.getScheme();
+        if (scheme == null || !(scheme.equalsIgnoreCase("http") || scheme.equalsIgnoreCase("https"))) {
+            return false;
+        }
+        String path = uri.getPath() == null ? "" : uri.getPath().toLowerCase(Locale.ROOT);
+        return !path.endsWith(".m3u8") && !path.endsWith(".mpd") && !path.contains("manifest");
+    }
+
+    private static final CacheDataSource.EventListener cacheListener = new CacheDataSource.EventListener() {
+        @Override
+        public void onCachedBytesRead(long cacheSizeBytes, long cachedBytesRead) {
+            cacheHits.incrementAndGet();
+            bytesSaved.addAndGet(cachedBytesRead);
+        }
+
+        @Override
+        public void onCacheIgnored(int reason) {
+            Log.v(TAG, "Cache ignored, reason: " + reason);
+        }
+    };
+
+    private static final TransferListener networkListener = new TransferListener() {
+        @Override
+        public void onTransferInitializing(@NonNull DataSource source, @NonNull DataSpec dataSpec, boolean isNetwork) {}
+
+        @Override
+        public void onTransferStart(@NonNull DataSource source, @NonNull DataSpec dataSpec, boolean isNetwork) {
+            if (isNetwork && isCacheable(dataSpec.uri)) {
+                cacheMisses.incrementAndGet();
+            }
+        }
+
+        @Override
+        public void onBytesTransferred(@NonNull DataSource source, @NonNull DataSpec dataSpec, boolean isNetwork, int bytesTransferred) {
+            if (isNetwork) {
+                bytesDownloaded.addAndGet(bytesTransferred);
+            }
+        }
+
+        @Override
+        public void onTransferEnd(@NonNull DataSource source, @NonNull DataSpec dataSpec, boolean isNetwork) {}
+    };
+
+    /**
+     * Data source routing each request either through the cache or directly upstream.
+     */
+    private static final class SelectiveCacheDataSource implements DataSource {
+        private final DataSource cacheDataSource;
+        private final DataSource upstreamDataSource;
+        @Nullable
+        private DataSource activeDataSource;
+
+        SelectiveCacheDataSource(DataSource cacheDataSource, DataSource upstreamDataSource) {
+            this.cacheDataSource = cacheDataSource;
+            this.upstreamDataSource = upstreamDataSource;
+        }
+
+        @Override
+        public void addTransferListener(@NonNull TransferListener transferListener) {
+            cacheDataSource.addTransferListener(transferListener);
+            upstreamDataSource.addTransferListener(transferListener);
+        }
+
+        @Override
+        public long open(@NonNull DataSpec dataSpec) throws IOException {
+            activeDataSource = isCacheable(dataSpec.uri) ? cacheDataSource : upstreamDataSource;
+            return activeDataSource.open(dataSpec);
+        }
+
+        @Override
+        public int read(@NonNull byte[] buffer, int offset, int length) throws IOException {
+            if (activeDataSource == null) {
+                throw new IOException("Data source is not opened");
+            }
+            return activeDataSource.read(buffer, offset, length);
+        }
+
+        @Nullable
+        @Override
+        public Uri getUri() {
+            return activeDataSource != null ? activeDataSource.getUri() : null;
+        }
+
+        @NonNull
+        @Override
+        public Map<String, List<String>> getResponseHeaders() {
+            return activeDataSource != null ? activeDataSource.getResponseHeaders() : new HashMap<>();
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (activeDataSource != null) {
+                try {
+                    activeDataSource.close();
+                } finally {
+                    activeDataSource = null;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,414 @@
+package app.wako.plugins.videoplayer.Components;
+
+import android.annotation.SuppressLint;
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+import androidx.media3.common.C;
+import androidx.media3.common.MediaItem;
+import androidx.media3.common.PlaybackException;
+import androidx.media3.common.PlaybackParameters;
+import androidx.media3.common.Player;
+import androidx.media3.common.util.UnstableApi;
+import androidx.media3.datasource.DataSource;
+import androidx.media3.exoplayer.DefaultRenderersFactory;
+import androidx.media3.exoplayer.ExoPlayer;
+import androidx.media3.exoplayer.Renderer;
+import androidx.media3.exoplayer.RenderersFactory;
+import androidx.media3.exoplayer.SeekParameters;
+import androidx.media3.exoplayer.source.DefaultMediaSourceFactory;
+import androidx.media3.exoplayer.text.TextOutput;
+import androidx.media3.exoplayer.text.TextRenderer;
+import androidx.media3.exoplayer.trackselection.AdaptiveTrackSelection;
+import androidx.media3.exoplayer.trackselection.DefaultTrackSelector;
+import androidx.media3.exoplayer.upstream.DefaultBandwidthMeter;
+import androidx.media3.extractor.DefaultExtractorsFactory;
+import androidx.media3.extractor.ts.DefaultTsPayloadReaderFactory;
+import androidx.media3.extractor.ts.TsExtractor;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Pool of initialized ExoPlayer instances.
+ * Building a player, its track selector, bandwidth meter and renderers is expensive on
+ * low-end devices, so released players are stopped and kept here to be reused by the
+ * next video, which then only has to swap the MediaItem.
+ * Must only be used from the main thread, which is the application looper of the players.
+ */
+@UnstableApi
+public class PlayerPool {
+
+    private static final String TAG = PlayerPool.class.getName();
+
+    public static final int DEFAULT_POOL_SIZE = 1;
+
+    // A pooled meter further than this factor from the stored estimate was seeded on another network
+    private static final int MAX_ESTIMATE_RATIO = 2;
+
+    // A preload that neither gets ready nor fails within this delay is reported as failed
+    private static final long PRELOAD_TIMEOUT_MS = 30000;
+    // Buffer of a preloaded video, above the buffer every profile needs to start playback
+    private static final long PRELOAD_BUFFER_MS = 10000;
+
+    /**
+     * Receives the outcome of a preload, on the main thread.
+     */
+    public interface PreloadListener {
+        void onPreloaded();
+
+        void onPreloadError(String message);
+    }
+
+    /**
+     * A player together with the components bound to it at construction time.
+     */
+    public static class PooledPlayer {
+        public final ExoPlayer player;
+        public final DefaultTrackSelector trackSelector;
+        public final DefaultBandwidthMeter bandwidthMeter;
+        // Data sources of the player, reading through the media cache
+        public final DataSource.Factory dataSourceFactory;
+        final PreloadLoadControl loadControl;
+        // Output of the text renderer, the cues go through it to be re-timed
+        public final RetimingTextOutput textOutput;
+        // Persisted estimate of the current network when the player was acquired, 0 if there was none
+        public long storedBitrateEstimate;
+        // Estimate of the meter when the player was acquired, only a measured change is saved
+        long initialBitrateEstimate;
+        final Context appContext;
+        final String configKey;
+
+        PooledPlayer(ExoPlayer player, DefaultTrackSelector trackSelector, DefaultBandwidthMeter bandwidthMeter, DataSource.Factory dataSourceFactory, PreloadLoadControl loadControl, RetimingTextOutput textOutput, long storedBitrateEstimate, Context appContext, String configKey) {
+            this.player = player;
+            this.trackSelector = trackSelector;
+            this.bandwidthMeter = bandwidthMeter;
+            this.dataSourceFactory = dataSourceFactory;
+            this.loadControl = loadControl;
+            this.textOutput = textOutput;
+            this.storedBitrateEstimate = storedBitrateEstimate;
+            this.initialBitrateEstimate = bandwidthMeter.getBitrateEstimate();
+            this.appContext = appContext;
+            this.configKey = configKey;
+        }
+    }
+
+    private static final ArrayDeque<PooledPlayer> idlePlayers = new ArrayDeque<>();
+    private static int maxPoolSize = DEFAULT_POOL_SIZE;
+
+    // Player prepared ahead of initPlayer by preload(), with the key of the video it holds
+    private static PooledPlayer preloadedPlayer;
+    private static String preloadedKey;
+    // Listeners waiting for the outcome of the current preload, empty once it is known
+    private static final List<PreloadListener> preloadListeners = new ArrayList<>();
+    private static final Handler handler = new Handler(Looper.getMainLooper());
+
+    private PlayerPool() {}
+
+    /**
+     * Sets how many idle players are kept ready, 0 disables pooling.
+     *
+     * @param size The maximum number of idle players
+     */
+    public static void setMaxPoolSize(int size) {
+        maxPoolSize = Math.max(0, size);
+        while (idlePlayers.size() > maxPoolSize) {
+            idlePlayers.removeLast().player.release();
+        }
+    }
+
+    /**
+     * Returns an idle player matching the configuration or builds a new one.
+     *
+     * @param context     The Android context
+     * @param cacheSizeMb   Maximum media cache size in megabytes, 0 disables the cache
+     * @param bufferProfile The requested buffer profile, see {@link BufferProfile}
+     * @return A player ready to receive a MediaItem
+     */
+    public static PooledPlayer acquire(Context context, long cacheSizeMb, String bufferProfile) {
+        String resolvedProfile = BufferProfile.resolve(context, bufferProfile);
+        String configKey = buildConfigKey(cacheSizeMb, resolvedProfile);
+        for (Iterator<PooledPlayer> iterator = idlePlayers.iterator(); iterator.hasNext(); ) {
+            PooledPlayer pooled = iterator.next();
+            if (pooled.configKey.equals(configKey)) {
+                iterator.remove();
+                // The meter cannot be seeded again, a player measured on another network is rebuilt
+                long storedBitrateEstimate = BandwidthEstimateStore.load(pooled.appContext);
+                long bitrateEstimate = pooled.bandwidthMeter.getBitrateEstimate();
+                if (storedBitrateEstimate > 0 && (bitrateEstimate > storedBitrateEstimate * MAX_ESTIMATE_RATIO || bitrateEstimate * MAX_ESTIMATE_RATIO < storedBitrateEstimate)) {
+                    Log.d(TAG, "Pooled player estimate " + bitrateEstimate + "bps is off the stored " + storedBitrateEstimate + "bps, rebuilding it");
+                    pooled.player.release();
+                    break;
+                }
+                pooled.storedBitrateEstimate = storedBitrateEstimate;
+                pooled.initialBitrateEstimate = bitrateEstimate;
+                resetState(context, pooled);
+                Log.d(TAG, "Reusing pooled player, " + idlePlayers.size() + " left");
+                return pooled;
+            }
+        }
+        return create(context, cacheSizeMb, resolvedProfile, configKey);
+    }
+
+    /**
+     * Stops a player and keeps it for the next video, or releases it when the pool is full.
+     * Listeners and views must have been detached by the caller.
+     *
+     * @param pooled The player to give back
+     */
+    public static void recycle(PooledPlayer pooled) {
+        if (pooled == null) {
+            return;
+        }
+        saveBitrateEstimate(pooled);
+        pooled.loadControl.setPreloadBufferMs(C.TIME_UNSET);
+        try {
+            pooled.player.stop();
+            pooled.player.clearMediaItems();
+            if (idlePlayers.size() < maxPoolSize) {
+                idlePlayers.addFirst(pooled);
+                return;
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Error recycling player", e);
+        }
+        pooled.player.release();
+    }
+
+    /**
+     * Prepares a player for a video that is about to be played.
+     * The manifest, the external subtitles and the first segments are loaded while the current
+     * video plays, the buffer being capped to a few seconds so the rest does not compete with
+     * it for bandwidth. The cap is removed when the player is taken by {@link #acquirePreloaded}.
+     * Replaces any previously preloaded video.
+     *
+     * @param context         The Android context
+     * @param cacheSizeMb     Maximum media cache size in megabytes, 0 disables the cache
+     * @param bufferProfile   The requested buffer profile, see {@link BufferProfile}
+     * @param key             The key of the video, see {@link #buildPreloadKey}
+     * @param mediaItem       The media item to prepare
+     * @param startPositionMs The position to start buffering from
+     * @param listener        Notified once the first segments are buffered or the preload has failed
+     */
+    public static void preload(Context context, long cacheSizeMb, String bufferProfile, String key, MediaItem mediaItem, long startPositionMs, PreloadListener listener) {
+        if (key.equals(preloadedKey) && preloadedPlayer != null && preloadedPlayer.player.getPlayerError() == null) {
+            Log.d(TAG, "Video already preloaded");
+            if (preloadListeners.isEmpty()) {
+                listener.onPreloaded();
+            } else {
+                preloadListeners.add(listener);
+            }
+            return;
+        }
+        discardPreloaded();
+
+        PooledPlayer pooled = acquire(context, cacheSizeMb, bufferProfile);
+        pooled.loadControl.setPreloadBufferMs(PRELOAD_BUFFER_MS);
+        preloadedPlayer = pooled;
+        preloadedKey = key;
+        preloadListeners.add(listener);
+        pooled.player.addListener(preloadPlayerListener);
+        handler.postDelayed(preloadTimeoutRunnable, PRELOAD_TIMEOUT_MS);
+
+        pooled.player.setMediaItem(mediaItem, startPositionMs);
+        pooled.player.prepare();
+        Log.d(TAG, "Preloading video from " + startPositionMs + "ms");
+    }
+
+    /**
+     * Takes the preloaded player if it holds the requested video.
+     * A preloaded player holding another video is discarded since it is not going to be used.
+     *
+     * @param key The key of the video, see {@link #buildPreloadKey}
+     * @return The prepared player, buffering without cap, or null if the video was not preloaded
+     */
+    @Nullable
+    public static PooledPlayer acquirePreloaded(String key) {
+        if (preloadedPlayer == null) {
+            return null;
+        }
+        if (!key.equals(preloadedKey) || preloadedPlayer.player.getPlayerError() != null) {
+            discardPreloaded();
+            return null;
+        }
+        PooledPlayer pooled = preloadedPlayer;
+        // The video is played from here, waiting listeners have nothing left to wait for
+        completePreload(null);
+        preloadedPlayer = null;
+        preloadedKey = null;
+        pooled.loadControl.setPreloadBufferMs(C.TIME_UNSET);
+        Log.d(TAG, "Using preloaded player, state: " + pooled.player.getPlaybackState());
+        return pooled;
+    }
+
+    /**
+     * Builds the key identifying a video and its external subtitles.
+     *
+     * @param videoUrl  The url of the video
+     * @param subtitles The external subtitles attached to the video
+     * @return The preload key
+     */
+    public static String buildPreloadKey(String videoUrl, List<SubtitleItem> subtitles) {
+        StringBuilder key = new StringBuilder(videoUrl);
+        if (subtitles != null) {
+            for (SubtitleItem subtitle : subtitles) {
+                key.append('|').append(subtitle.url);
+            }
+        }
+        return key.toString();
+    }
+
+    /**
+     * Stops waiting for the preloaded player and notifies the waiting listeners.
+     *
+     * @param errorMessage The reason of the failure, null when the preload succeeded
+     */
+    private static void completePreload(@Nullable String errorMessage) {
+        handler.removeCallbacks(preloadTimeoutRunnable);
+        if (preloadedPlayer != null) {
+            preloadedPlayer.player.removeListener(preloadPlayerListener);
+        }
+        List<PreloadListener> listeners = new ArrayList<>(preloadListeners);
+        preloadListeners.clear();
+        for (PreloadListener listener : listeners) {
+            if (errorMessage == null) {
+                listener.onPreloaded();
+            } else {
+                listener.onPreloadError(errorMessage);
+            }
+        }
+    }
+
+    private static final Player.Listener preloadPlayerListener = new Player.Listener() {
+        @Override
+        public void onPlaybackStateChanged(int state) {
+            if (state == Player.STATE_READY) {
+                Log.d(TAG, "Preloaded video ready");
+                completePreload(null);
+            }
+        }
+
+        @Override
+        public void onPlayerError(PlaybackException error) {
+            Log.e(TAG, "Error preloading video", error);
+            completePreload(error.getErrorCodeName() + ": " + error.getMessage());
+        }
+    };
+
+    private static final Runnable preloadTimeoutRunnable = new Runnable() {
+        @Override
+        public void run() {
+            Log.w(TAG, "Preloaded video not ready after " + PRELOAD_TIMEOUT_MS + "ms");
+            completePreload("Preload timed out");
+        }
+    };
+
+    private static void discardPreloaded() {
+        if (preloadedPlayer != null) {
+            completePreload("Preload replaced or discarded");
+            PooledPlayer pooled = preloadedPlayer;
+            preloadedPlayer = null;
+            preloadedKey = null;
+            recycle(pooled);
+        }
+    }
+
+    /**
+     * Releases every idle and preloaded player.
+     */
+    public static void releaseAll() {
+        if (preloadedPlayer != null) {
+            completePreload("Player released");
+            saveBitrateEstimate(preloadedPlayer);
+            preloadedPlayer.player.release();
+            preloadedPlayer = null;
+            preloadedKey = null;
+        }
+        while (!idlePlayers.isEmpty()) {
+            idlePlayers.removeFirst().player.release();
+        }
+    }
+
+    private static String buildConfigKey(long cacheSizeMb, String resolvedProfile) {
+        return "cache=" + (cacheSizeMb > 0) + ";buffer=" + resolvedProfile;
+    }
+
+    private static PooledPlayer create(Context context, long cacheSizeMb, String resolvedProfile, String configKey) {
+        // Pooled players outlive the fragment, so they must not hold on to an activity
+        Context appContext = context.getApplicationContext();
+
+        // Enable audio libs
+        DefaultExtractorsFactory extractorsFactory = new DefaultExtractorsFactory().setTsExtractorFlags(DefaultTsPayloadReaderFactory.FLAG_ENABLE_HDMV_DTS_AUDIO_STREAMS).setTsExtractorTimestampSearchBytes(1500 * TsExtractor.TS_PACKET_SIZE);
+
+        // The text renderer outputs through the retiming output, see SubtitleRetimer
+        RetimingTextOutput textOutput = new RetimingTextOutput();
+        @SuppressLint("WrongConstant") RenderersFactory renderersFactory = new DefaultRenderersFactory(appContext) {
+            @Override
+            protected void buildTextRenderers(Context context, TextOutput output, Looper outputLooper, int extensionRendererMode, ArrayList<Renderer> out) {
+                textOutput.setPlayerOutput(output);
+                out.add(new TextRenderer(textOutput, outputLooper));
+            }
+        }.setExtensionRendererMode(DefaultRenderersFactory.EXTENSION_RENDERER_MODE_ON);
+
+        // Start adaptive selection from the estimate reached last time on this network
+        long storedBitrateEstimate = BandwidthEstimateStore.load(appContext);
+        DefaultBandwidthMeter.Builder bandwidthMeterBuilder = new DefaultBandwidthMeter.Builder(appContext);
+        if (storedBitrateEstimate > 0) {
+            bandwidthMeterBuilder.setInitialBitrateEstimate(storedBitrateEstimate);
+        }
+        DefaultBandwidthMeter bandwidthMeter = bandwidthMeterBuilder.build();
+        AdaptiveTrackSelection.Factory videoTrackSelectionFactory = new AdaptiveTrackSelection.Factory();
+
+        DefaultTrackSelector trackSelector = new DefaultTrackSelector(appContext, videoTrackSelectionFactory);
+        trackSelector.setParameters(buildDefaultParameters(appContext));
+
+        PreloadLoadControl loadControl = BufferProfile.buildLoadControl(resolvedProfile);
+
+        // Read segments through the shared disk cache so replays and rewinds avoid the network
+        DataSource.Factory dataSourceFactory = MediaCache.buildDataSourceFactory(appContext, cacheSizeMb);
+
+        ExoPlayer player = new ExoPlayer.Builder(appContext, renderersFactory).setSeekBackIncrementMs(10000).setSeekForwardIncrementMs(10000).setTrackSelector(trackSelector)
+                .setLoadControl(loadControl)
+                .setBandwidthMeter(bandwidthMeter)
+                .setMediaSourceFactory(new DefaultMediaSourceFactory(dataSourceFactory, extractorsFactory)
+                        // Reuse the cues parsed in previous sessions for external subtitles
+                        .setSubtitleParserFactory(new CachingSubtitleParserFactory(appContext)))
+                .build();
+
+        Log.d(TAG, "Created new player (" + configKey + "), initial bandwidth estimate: " + bandwidthMeter.getBitrateEstimate() + "bps");
+        return new PooledPlayer(player, trackSelector, bandwidthMeter, dataSourceFactory, loadControl, textOutput, storedBitrateEstimate, appContext, configKey);
+    }
+
+    /**
+     * Persists the estimate of a player once its meter has measured at least one transfer.
+     */
+    private static void saveBitrateEstimate(PooledPlayer pooled) {
+        long bitrateEstimate = pooled.bandwidthMeter.getBitrateEstimate();
+        if (bitrateEstimate != pooled.initialBitrateEstimate) {
+            BandwidthEstimateStore.save(pooled.appContext, bitrateEstimate);
+        }
+    }
+
+    /**
+     * Clears whatever the previous video changed on a reused player.
+     */
+    private static void resetState(Context context, PooledPlayer pooled) {
+        pooled.trackSelector.setParameters(buildDefaultParameters(context.getApplicationContext()));
+        pooled.player.setPlayWhenReady(false);
+        pooled.player.setVolume(1f);
+        pooled.player.setPlaybackParameters(PlaybackParameters.DEFAULT);
+        pooled.player.setSeekParameters(SeekParameters.DEFAULT);
+        pooled.player.setRepeatMode(Player.REPEAT_MODE_OFF);
+    }
+
+    private static DefaultTrackSelector.Parameters buildDefaultParameters(Context context) {
+        return new DefaultTrackSelector.Parameters.Builder(context)
+                .setIgnoredTextSelectionFlags(C.SELECTION_FLAG_DEFAULT | C.SELECTION_FLAG_FORCED)
+                .build();
+    }
+}
@@ -0,0 +1,42 @@
+package app.wako.plugins.videoplayer.Components;
+
+import androidx.media3.common.C;
+import androidx.media3.common.util.UnstableApi;
+import androidx.media3.exoplayer.DefaultLoadControl;
+import androidx.media3.exoplayer.upstream.DefaultAllocator;
+
+/**
+ * DefaultLoadControl whose buffer can be capped while its player preloads a video.
+ * The first segments are then fetched and the player gets ready, but it stops loading
+ * there instead of filling a full buffer next to the video being played.
+ * The cap is set from the main thread and read by the playback thread.
+ */
+@UnstableApi
+public class PreloadLoadControl extends DefaultLoadControl {
+
+    private volatile long preloadBufferUs = C.TIME_UNSET;
+
+    PreloadLoadControl(int minBufferMs, int maxBufferMs, int bufferForPlaybackMs, int bufferForPlaybackAfterRebufferMs,
+                       int targetBufferBytes, boolean prioritizeTimeOverSizeThresholds, int backBufferDurationMs, boolean retainBackBufferFromKeyframe) {
+        super(new DefaultAllocator(true, C.DEFAULT_BUFFER_SEGMENT_SIZE), minBufferMs, maxBufferMs, bufferForPlaybackMs,
+                bufferForPlaybackAfterRebufferMs, targetBufferBytes, prioritizeTimeOverSizeThresholds, backBufferDurationMs,
+                retainBackBufferFromKeyframe);
+    }
+
+    /**
+     * Caps the buffer while preloading, it must stay above the buffer needed to start playback.
+     *
+     * @param preloadBufferMs The maximum buffered duration, C.TIME_UNSET removes the cap
+     */
+    public void setPreloadBufferMs(long preloadBufferMs) {
+        preloadBufferUs = preloadBufferMs == C.TIME_UNSET ? C.TIME_UNSET : preloadBufferMs * 1000;
+    }
+
+    @Override
+    public boolean shouldContinueLoading(Parameters parameters) {
+        // The default policy is still asked so that its own loading state stays up to date
+        boolean continueLoading = super.shouldContinueLoading(parameters);
+        long capUs = preloadBufferUs;
+        return continueLoading && (capUs == C.TIME_UNSET || parameters.bufferedDurationUs < capUs);
+    }
+}
@@ -0,0 +1,296 @@
+package app.wako.plugins.videoplayer.Components;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+
+import androidx.annotation.NonNull;
+import androidx.media3.common.Format;
+import androidx.media3.common.PlaybackException;
+import androidx.media3.common.Player;
+import androidx.media3.common.util.UnstableApi;
+import androidx.media3.exoplayer.DecoderReuseEvaluation;
+import androidx.media3.exoplayer.ExoPlayer;
+import androidx.media3.exoplayer.analytics.AnalyticsListener;
+import androidx.media3.exoplayer.source.LoadEventInfo;
+import androidx.media3.exoplayer.source.MediaLoadData;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import app.wako.plugins.videoplayer.Notifications.NotificationCenter;
+
+/**
+ * Collects quality of experience metrics of one playback session: join time, rebuffers,
+ * bitrate switches, dropped frames, average bitrate and errors.
+ * Aggregates are posted periodically as "playerQoE" notifications, the final summary
+ * is read with {@link #getSnapshot()} when the player exits.
+ * Must be used from the main thread, which is the application looper of the players.
+ */
+@UnstableApi
+public class QoECollector implements AnalyticsListener {
+
+    public static final long DEFAULT_INTERVAL_MS = 10000;
+
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final long intervalMs;
+    private final long sessionStartMs;
+
+    private long joinTimeMs = -1;
+    private int playbackState = Player.STATE_IDLE;
+    private boolean seeking;
+    private long rebufferStartMs = -1;
+    private int rebufferCount;
+    private long rebufferDurationMs;
+
+    private long playingStartMs = -1;
+    private long playingTimeMs;
+
+    private int currentVideoBitrate = Format.NO_VALUE;
+    private int bitrateSwitches;
+    // Sum of bitrate multiplied by the time played at that bitrate
+    private double bitrateTimeProduct;
+    private long bitrateTimeMs;
+
+    private long droppedFrames;
+    private int errorCount;
+    private int loadErrorCount;
+
+    /**
+     * @param intervalMs Interval between two playerQoE notifications, 0 disables them
+     */
+    public QoECollector(long intervalMs) {
+        this.intervalMs = intervalMs;
+        this.sessionStartMs = SystemClock.elapsedRealtime();
+        if (intervalMs > 0) {
+            handler.postDelayed(reportRunnable, intervalMs);
+        }
+    }
+
+    /**
+     * Starts collecting the metrics of a player.
+     * A preloaded player may already be ready, its join time is then the attach time.
+     *
+     * @param player The player of the session
+     */
+    public void attach(ExoPlayer player) {
+        player.addAnalyticsListener(this);
+        playbackState = player.getPlaybackState();
+        if (playbackState == Player.STATE_READY) {
+            joinTimeMs = SystemClock.elapsedRealtime() - sessionStartMs;
+        }
+        Format videoFormat = player.getVideoFormat();
+        if (videoFormat != null) {
+            currentVideoBitrate = videoFormat.bitrate;
+        }
+    }
+
+    /**
+     * Stops collecting and stops the periodic notifications. The snapshot stays readable.
+     *
+     * @param player The player of the session
+     */
+    public void detach(ExoPlayer player) {
+        player.removeAnalyticsListener(this);
+        handler.removeCallbacks(reportRunnable);
+        handler.removeCallbacks(seekEndCheckRunnable);
+        long nowMs = SystemClock.elapsedRealtime();
+        closePlayingPeriod(nowMs);
+        closeRebuffer(nowMs);
+    }
+
+    /**
+     * Stops following the player while it is not the one playing, e.g. while casting.
+     * The periodic notifications go on with the metrics collected so far.
+     *
+     * @param player The player of the session
+     */
+    public void pause(ExoPlayer player) {
+        player.removeAnalyticsListener(this);
+        handler.removeCallbacks(seekEndCheckRunnable);
+        long nowMs = SystemClock.elapsedRealtime();
+        closePlayingPeriod(nowMs);
+        closeRebuffer(nowMs);
+    }
+
+    /**
+     * Follows the player again after {@link #pause}. It may have been moved meanwhile, the
+     * buffering that follows counts as a seek.
+     *
+     * @param player The player of the session
+     */
+    public void resume(ExoPlayer player) {
+        player.addAnalyticsListener(this);
+        playbackState = player.getPlaybackState();
+        seeking = playbackState != Player.STATE_READY;
+        if (player.isPlaying()) {
+            playingStartMs = SystemClock.elapsedRealtime();
+        }
+    }
+
+    /**
+     * Returns the metrics aggregated since the session started.
+     *
+     * @return The metrics, durations in milliseconds and bitrates in bits per second
+     */
+    public Map<String, Object> getSnapshot() {
+        long nowMs = SystemClock.elapsedRealtime();
+        long currentPlayingTimeMs = playingTimeMs + (playingStartMs >= 0 ? nowMs - playingStartMs : 0);
+        long currentRebufferDurationMs = rebufferDurationMs + (rebufferStartMs >= 0 ? nowMs - rebufferStartMs : 0);
+        double currentBitrateTimeProduct = bitrateTimeProduct;
+        long currentBitrateTimeMs = bitrateTimeMs;
+        if (playingStartMs >= 0 && currentVideoBitrate != Format.NO_VALUE) {
+            currentBitrateTimeProduct += (double) currentVideoBitrate * (nowMs - playingStartMs);
+            currentBitrateTimeMs += nowMs - playingStartMs;
+        }
+
+        Map<String, Object> snapshot = new HashMap<>();
+        snapshot.put("sessionDurationMs", nowMs - sessionStartMs);
+        snapshot.put("joinTimeMs", joinTimeMs);
+        snapshot.put("playingTimeMs", currentPlayingTimeMs);
+        snapshot.put("rebufferCount", rebufferCount);
+        snapshot.put("rebufferDurationMs", currentRebufferDurationMs);
+        long watchedMs = currentPlayingTimeMs + currentRebufferDurationMs;
+        snapshot.put("rebufferRatio", watchedMs > 0 ? (double) currentRebufferDurationMs / watchedMs : 0d);
+        snapshot.put("bitrateSwitches", bitrateSwitches);
+        snapshot.put("currentBitrate", currentVideoBitrate != Format.NO_VALUE ? currentVideoBitrate : 0);
+        snapshot.put("averageBitrate", currentBitrateTimeMs > 0 ? Math.round(currentBitrateTimeProduct / currentBitrateTimeMs) : 0L);
+        snapshot.put("droppedFrames", droppedFrames);
+        snapshot.put("errorCount", errorCount);
+        snapshot.put("loadErrorCount", loadErrorCount);
+        return snapshot;
+    }
+
+    @Override
+    public void onPlaybackStateChanged(@NonNull EventTime eventTime, int state) {
+        long nowMs = eventTime.realtimeMs;
+        playbackState = state;
+        if (state == Player.STATE_READY) {
+            if (joinTimeMs < 0) {
+                joinTimeMs = nowMs - sessionStartMs;
+            }
+            seeking = false;
+            closeRebuffer(nowMs);
+        } else if (state == Player.STATE_BUFFERING) {
+            // Only stalls during playback count, not the initial load nor a seek
+            if (joinTimeMs >= 0 && !seeking && rebufferStartMs < 0) {
+                rebufferStartMs = nowMs;
+                rebufferCount++;
+            }
+        } else {
+            seeking = false;
+            closeRebuffer(nowMs);
+        }
+    }
+
+    @Override
+    public void onTimelineChanged(@NonNull EventTime eventTime, int reason) {
+        if (reason == Player.TIMELINE_CHANGE_REASON_PLAYLIST_CHANGED && joinTimeMs >= 0) {
+            // A media item set again, e.g. to attach a subtitle, is prepared again: not a stall
+            seeking = true;
+            closeRebuffer(eventTime.realtimeMs);
+        }
+    }
+
+    @Override
+    public void onPositionDiscontinuity(@NonNull EventTime eventTime, @NonNull Player.PositionInfo oldPosition, @NonNull Player.PositionInfo newPosition, int reason) {
+        if (reason == Player.DISCONTINUITY_REASON_SEEK) {
+            seeking = true;
+            // A stall interrupted by a seek stops counting as a rebuffer
+            closeRebuffer(eventTime.realtimeMs);
+            // The state change of the seek, if any, is reported after the discontinuity
+            handler.removeCallbacks(seekEndCheckRunnable);
+            handler.post(seekEndCheckRunnable);
+        }
+    }
+
+    @Override
+    public void onRenderedFirstFrame(@NonNull EventTime eventTime, @NonNull Object output, long renderTimeMs) {
+        // The frame at the seek position is shown, the seek is over even if READY is not reported again
+        seeking = false;
+    }
+
+    @Override
+    public void onIsPlayingChanged(@NonNull EventTime eventTime, boolean isPlaying) {
+        if (isPlaying) {
+            if (playingStartMs < 0) {
+                playingStartMs = eventTime.realtimeMs;
+            }
+        } else {
+            closePlayingPeriod(eventTime.realtimeMs);
+        }
+    }
+
+    @Override
+    public void onVideoInputFormatChanged(@NonNull EventTime eventTime, @NonNull Format format, DecoderReuseEvaluation decoderReuseEvaluation) {
+        if (format.bitrate == currentVideoBitrate) {
+            return;
+        }
+        // Account the time played at the previous bitrate before switching
+        long nowMs = eventTime.realtimeMs;
+        if (playingStartMs >= 0) {
+            closePlayingPeriod(nowMs);
+            playingStartMs = nowMs;
+        }
+        if (currentVideoBitrate != Format.NO_VALUE) {
+            bitrateSwitches++;
+        }
+        currentVideoBitrate = format.bitrate;
+    }
+
+    @Override
+    public void onDroppedVideoFrames(@NonNull EventTime eventTime, int droppedFrames, long elapsedMs) {
+        this.droppedFrames += droppedFrames;
+    }
+
+    @Override
+    public void onPlayerError(@NonNull EventTime eventTime, @NonNull PlaybackException error) {
+        errorCount++;
+    }
+
+    @Override
+    public void onLoadError(@NonNull EventTime eventTime, @NonNull LoadEventInfo loadEventInfo, @NonNull MediaLoadData mediaLoadData, @NonNull IOException error, boolean wasCanceled) {
+        loadErrorCount++;
+    }
+
+    private void closePlayingPeriod(long nowMs) {
+        if (playingStartMs < 0) {
+            return;
+        }
+        long periodMs = nowMs - playingStartMs;
+        playingTimeMs += periodMs;
+        if (currentVideoBitrate != Format.NO_VALUE) {
+            bitrateTimeProduct += (double) currentVideoBitrate * periodMs;
+            bitrateTimeMs += periodMs;
+        }
+        playingStartMs = -1;
+    }
+
+    private void closeRebuffer(long nowMs) {
+        if (rebufferStartMs >= 0) {
+            rebufferDurationMs += nowMs - rebufferStartMs;
+            rebufferStartMs = -1;
+        }
+    }
+
+    /**
+     * Ends a seek that was resolved in the buffer without leaving the READY state.
+     */
+    private final Runnable seekEndCheckRunnable = new Runnable() {
+        @Override
+        public void run() {
+            if (playbackState == Player.STATE_READY) {
+                seeking = false;
+            }
+        }
+    };
+
+    private final Runnable reportRunnable = new Runnable() {
+        @Override
+        public void run() {
+            NotificationCenter.defaultCenter().postNotification("playerQoE", getSnapshot());
+            handler.postDelayed(this, intervalMs);
+        }
+    };
+}
@@ -0,0 +1,93 @@
+package app.wako.plugins.videoplayer.Components;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.media3.common.text.Cue;
+import androidx.media3.common.text.CueGroup;
+import androidx.media3.common.util.UnstableApi;
+import androidx.media3.exoplayer.text.TextOutput;
+
+import java.util.List;
+
+/**
+ * Output of the text renderer of a pooled player, placed in front of the player's own output.
+ * The cues of the renderer go through unchanged, unless a SubtitleRetimer is re-timing the
+ * subtitle: its cues are then the ones given to the player, so the player view and every
+ * listener only ever see the re-timed cues.
+ * Called on the application looper of the player, which is the main thread.
+ */
+@UnstableApi
+public class RetimingTextOutput implements TextOutput {
+
+    private TextOutput playerOutput;
+    @Nullable
+    private SubtitleRetimer retimer;
+    private CueGroup lastRendererCues = CueGroup.EMPTY_TIME_ZERO;
+    private boolean showingRetimedCues = false;
+
+    /**
+     * @param playerOutput The output the player gives to its text renderer
+     */
+    void setPlayerOutput(TextOutput playerOutput) {
+        this.playerOutput = playerOutput;
+    }
+
+    /**
+     * Routes the cues through a retimer, or gives the output back to the renderer.
+     *
+     * @param retimer The retimer of the player, null when it stops
+     */
+    void setRetimer(@Nullable SubtitleRetimer retimer) {
+        this.retimer = retimer;
+        if (retimer == null) {
+            showRendererCues();
+        }
+    }
+
+    /**
+     * Shows re-timed cues in place of the ones of the renderer.
+     *
+     * @param cues               The cues to display
+     * @param presentationTimeUs The playback position they are displayed at
+     */
+    void showRetimedCues(List<Cue> cues, long presentationTimeUs) {
+        showingRetimedCues = true;
+        output(new CueGroup(cues, presentationTimeUs));
+    }
+
+    /**
+     * Shows the latest cues of the renderer again, after re-timed ones.
+     */
+    void showRendererCues() {
+        if (showingRetimedCues) {
+            showingRetimedCues = false;
+            output(lastRendererCues);
+        }
+    }
+
+    @Override
+    public void onCues(@NonNull CueGroup cueGroup) {
+        lastRendererCues = cueGroup;
+        if (retimer != null && retimer.onRendererCues()) {
+            // Replaced by the re-timed cues
+            return;
+        }
+        showingRetimedCues = false;
+        output(cueGroup);
+    }
+
+    @SuppressWarnings("deprecation")
+    @Override
+    public void onCues(@NonNull List<Cue> cues) {
+        // Sent by the renderer together with the cue group, both are output by output()
+    }
+
+    @SuppressWarnings("deprecation")
+    private void output(CueGroup cueGroup) {
+        if (playerOutput == null) {
+            return;
+        }
+        playerOutput.onCues(cueGroup.cues);
+        playerOutput.onCues(cueGroup);
+    }
+}
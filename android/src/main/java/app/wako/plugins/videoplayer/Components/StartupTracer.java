@@ -0,0 +1,222 @@
+package app.wako.plugins.videoplayer.Components;
+
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.os.Trace;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.media3.common.C;
+import androidx.media3.common.Format;
+import androidx.media3.common.PlaybackException;
+import androidx.media3.common.Player;
+import androidx.media3.common.util.UnstableApi;
+import androidx.media3.exoplayer.DecoderReuseEvaluation;
+import androidx.media3.exoplayer.analytics.AnalyticsListener;
+import androidx.media3.exoplayer.source.LoadEventInfo;
+import androidx.media3.exoplayer.source.MediaLoadData;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import app.wako.plugins.videoplayer.Notifications.NotificationCenter;
+
+/**
+ * Records how long each startup phase takes, from the initPlayer call to the first
+ * rendered frame. Each phase is also written as an async trace section lasting until the
+ * next phase, so a whole startup can be inspected in Perfetto. Once both the first frame
+ * and STATE_READY are reached, the timeline is posted as a "playerStartupMetrics"
+ * notification. It is also posted when the player fails, or when no frame follows
+ * STATE_READY, as for audio only streams.
+ */
+@UnstableApi
+public class StartupTracer {
+
+    private static final String TAG = StartupTracer.class.getName();
+    private static final String TRACE_PREFIX = "wako:";
+    private static final String STARTUP_SECTION = TRACE_PREFIX + "startup";
+    // The trace ends this long after STATE_READY when no frame is rendered
+    private static final long FIRST_FRAME_TIMEOUT_MS = 5000;
+
+    public static final String PLUGIN_CALL = "pluginCall";
+    public static final String FRAGMENT_ATTACHED = "fragmentAttached";
+    public static final String INITIALIZE_PLAYER_BEGIN = "initializePlayerBegin";
+    public static final String INITIALIZE_PLAYER_END = "initializePlayerEnd";
+    public static final String MANIFEST_LOADED = "manifestLoaded";
+    public static final String FIRST_SEGMENT_LOADED = "firstSegmentLoaded";
+    public static final String RENDERER_READY = "rendererReady";
+    public static final String FIRST_FRAME_RENDERED = "firstFrameRendered";
+    public static final String STATE_READY = "stateReady";
+
+    private static final Map<String, Long> phases = new LinkedHashMap<>();
+    private static long startTimeMs;
+    private static int cookie;
+    private static boolean active;
+    private static boolean preloaded;
+    // Async section of the last phase reached, open until the next one
+    private static String phaseSection;
+    private static final Handler handler = new Handler(Looper.getMainLooper());
+
+    private StartupTracer() {}
+
+    /**
+     * Starts a new trace, dropping any unfinished one.
+     */
+    public static synchronized void begin() {
+        if (active) {
+            endAsyncSections();
+        }
+        handler.removeCallbacks(firstFrameTimeoutRunnable);
+        phases.clear();
+        startTimeMs = SystemClock.elapsedRealtime();
+        cookie++;
+        active = true;
+        preloaded = false;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            Trace.beginAsyncSection(STARTUP_SECTION, cookie);
+        }
+        mark(PLUGIN_CALL);
+    }
+
+    /**
+     * Records a phase the first time it is reached during the current trace.
+     *
+     * @param phase The phase name
+     */
+    public static synchronized void mark(String phase) {
+        if (!active || phases.containsKey(phase)) {
+            return;
+        }
+        long offsetMs = SystemClock.elapsedRealtime() - startTimeMs;
+        phases.put(phase, offsetMs);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            if (phaseSection != null) {
+                Trace.endAsyncSection(phaseSection, cookie);
+            }
+            phaseSection = TRACE_PREFIX + phase;
+            Trace.beginAsyncSection(phaseSection, cookie);
+        }
+        Log.d(TAG, "Startup phase " + phase + " at " + offsetMs + "ms");
+
+        if (phases.containsKey(FIRST_FRAME_RENDERED) && phases.containsKey(STATE_READY)) {
+            finish(null);
+        } else if (STATE_READY.equals(phase)) {
+            handler.postDelayed(firstFrameTimeoutRunnable, FIRST_FRAME_TIMEOUT_MS);
+        }
+    }
+
+    /**
+     * Ends the current trace on a player error, with the phases reached so far.
+     *
+     * @param error The error that stopped the startup
+     */
+    private static synchronized void fail(PlaybackException error) {
+        if (active) {
+            finish(error.getErrorCodeName());
+        }
+    }
+
+    /**
+     * Flags the current trace as started from a preloaded player, whose network
+     * phases happened before the initPlayer call and are therefore missing.
+     */
+    public static synchronized void setPreloaded(boolean isPreloaded) {
+        preloaded = isPreloaded;
+    }
+
+    /**
+     * Returns the listener recording the player side phases.
+     * It must be removed from the player when the fragment releases it.
+     */
+    public static AnalyticsListener getAnalyticsListener() {
+        return analyticsListener;
+    }
+
+    /**
+     * @param error The error code name when the player failed, null otherwise
+     */
+    private static void finish(String error) {
+        active = false;
+        handler.removeCallbacks(firstFrameTimeoutRunnable);
+        endAsyncSections();
+
+        Map<String, Object> info = new LinkedHashMap<>(phases);
+        long totalMs = 0;
+        for (long offsetMs : phases.values()) {
+            totalMs = Math.max(totalMs, offsetMs);
+        }
+        info.put("totalMs", totalMs);
+        info.put("preloaded", preloaded);
+        if (error != null) {
+            info.put("error", error);
+        }
+        NotificationCenter.defaultCenter().postNotification("playerStartupMetrics", info);
+    }
+
+    private static void endAsyncSections() {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            if (phaseSection != null) {
+                Trace.endAsyncSection(phaseSection, cookie);
+            }
+            Trace.endAsyncSection(STARTUP_SECTION, cookie);
+        }
+        phaseSection = null;
+    }
+
+    private static final Runnable firstFrameTimeoutRunnable = new Runnable() {
+        @Override
+        public void run() {
+            synchronized (StartupTracer.class) {
+                if (active) {
+                    Log.d(TAG, "No frame rendered " + FIRST_FRAME_TIMEOUT_MS + "ms after STATE_READY, ending the trace");
+                    finish(null);
+                }
+            }
+        }
+    };
+
+    private static final AnalyticsListener analyticsListener = new AnalyticsListener() {
+        @Override
+        public void onLoadCompleted(@NonNull EventTime eventTime, @NonNull LoadEventInfo loadEventInfo, @NonNull MediaLoadData mediaLoadData) {
+            if (mediaLoadData.dataType == C.DATA_TYPE_MANIFEST) {
+                mark(MANIFEST_LOADED);
+            } else if (mediaLoadData.dataType == C.DATA_TYPE_MEDIA
+                    && (mediaLoadData.trackType == C.TRACK_TYPE_VIDEO || mediaLoadData.trackType == C.TRACK_TYPE_AUDIO || mediaLoadData.trackType == C.TRACK_TYPE_DEFAULT)) {
+                // Side-loaded subtitles are media loads too, only audio and video segments count
+                mark(FIRST_SEGMENT_LOADED);
+            }
+        }
+
+        @Override
+        public void onVideoDecoderInitialized(@NonNull EventTime eventTime, @NonNull String decoderName, long initializedTimestampMs, long initializationDurationMs) {
+            mark(RENDERER_READY);
+        }
+
+        @Override
+        public void onVideoInputFormatChanged(@NonNull EventTime eventTime, @NonNull Format format, DecoderReuseEvaluation decoderReuseEvaluation) {
+            // A reused decoder does not report its initialization again
+            if (decoderReuseEvaluation != null) {
+                mark(RENDERER_READY);
+            }
+        }
+
+        @Override
+        public void onRenderedFirstFrame(@NonNull EventTime eventTime, @NonNull Object output, long renderTimeMs) {
+            mark(FIRST_FRAME_RENDERED);
+        }
+
+        @Override
+        public void onPlaybackStateChanged(@NonNull EventTime eventTime, int state) {
+            if (state == Player.STATE_READY) {
+                mark(STATE_READY);
+            }
+        }
+
+        @Override
+        public void onPlayerError(@NonNull EventTime eventTime, @NonNull PlaybackException error) {
+            fail(error);
+        }
+    };
+}
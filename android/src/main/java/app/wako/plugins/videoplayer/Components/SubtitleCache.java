@@ -0,0 +1,179 @@
+package app.wako.plugins.videoplayer.Components;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+import androidx.media3.common.util.UnstableApi;
+import androidx.media3.extractor.text.CueDecoder;
+import androidx.media3.extractor.text.CueEncoder;
+import androidx.media3.extractor.text.CuesWithTiming;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Disk cache of parsed subtitle cues, evicted in least recently used order.
+ * Each entry stores the start and duration of every cue group as arrays, followed by one
+ * blob holding all the encoded cues, so reading an entry back needs no subtitle parsing.
+ */
+@UnstableApi
+public class SubtitleCache {
+
+    private static final String TAG = SubtitleCache.class.getName();
+    private static final String CACHE_DIRECTORY = "wako-subtitle-cache";
+    private static final String FILE_EXTENSION = ".cues";
+    private static final int MAGIC = 0x57534331; // "WSC1"
+    private static final long MAX_CACHE_SIZE_BYTES = 32L * 1024L * 1024L;
+
+    private static File cacheDir;
+
+    private SubtitleCache() {}
+
+    /**
+     * Sets the directory of the cache, must be called before any read or write.
+     *
+     * @param context The Android context
+     */
+    public static synchronized void init(Context context) {
+        if (cacheDir == null) {
+            cacheDir = new File(context.getApplicationContext().getCacheDir(), CACHE_DIRECTORY);
+        }
+    }
+
+    /**
+     * Reads the cues stored under a key.
+     *
+     * @param key The entry key
+     * @return The cues or null if the entry does not exist or cannot be read
+     */
+    @Nullable
+    public static synchronized List<CuesWithTiming> get(String key) {
+        File file = getFile(key);
+        if (file == null || !file.exists()) {
+            return null;
+        }
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (input.readInt() != MAGIC) {
+                throw new IOException("Unknown cache entry format");
+            }
+            int count = input.readInt();
+            long[] startTimesUs = new long[count];
+            long[] durationsUs = new long[count];
+            int[] blobLengths = new int[count];
+            for (int i = 0; i < count; i++) {
+                startTimesUs[i] = input.readLong();
+            }
+            for (int i = 0; i < count; i++) {
+                durationsUs[i] = input.readLong();
+            }
+            int blobSize = 0;
+            for (int i = 0; i < count; i++) {
+                blobLengths[i] = input.readInt();
+                blobSize += blobLengths[i];
+            }
+            byte[] blob = new byte[blobSize];
+            input.readFully(blob);
+
+            CueDecoder cueDecoder = new CueDecoder();
+            List<CuesWithTiming> cues = new ArrayList<>(count);
+            int offset = 0;
+            for (int i = 0; i < count; i++) {
+                CuesWithTiming decoded = cueDecoder.decode(startTimesUs[i], blob, offset, blobLengths[i]);
+                cues.add(new CuesWithTiming(decoded.cues, startTimesUs[i], durationsUs[i]));
+                offset += blobLengths[i];
+            }
+            // Mark the entry as recently used
+            file.setLastModified(System.currentTimeMillis());
+            return cues;
+        } catch (Exception e) {
+            Log.w(TAG, "Dropping unreadable subtitle cache entry " + key, e);
+            file.delete();
+            return null;
+        }
+    }
+
+    /**
+     * Stores the cues under a key and evicts the least recently used entries if needed.
+     *
+     * @param key  The entry key
+     * @param cues The parsed cues
+     */
+    public static synchronized void put(String key, List<CuesWithTiming> cues) {
+        File file = getFile(key);
+        if (file == null) {
+            return;
+        }
+        if (!cacheDir.exists() && !cacheDir.mkdirs()) {
+            return;
+        }
+        CueEncoder cueEncoder = new CueEncoder();
+        List<byte[]> encodedCues = new ArrayList<>(cues.size());
+        for (CuesWithTiming cuesWithTiming : cues) {
+            encodedCues.add(cueEncoder.encode(cuesWithTiming.cues, cuesWithTiming.durationUs));
+        }
+
+        File tempFile = new File(cacheDir, file.getName() + ".tmp");
+        try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)))) {
+            output.writeInt(MAGIC);
+            output.writeInt(cues.size());
+            for (CuesWithTiming cuesWithTiming : cues) {
+                output.writeLong(cuesWithTiming.startTimeUs);
+            }
+            for (CuesWithTiming cuesWithTiming : cues) {
+                output.writeLong(cuesWithTiming.durationUs);
+            }
+            for (byte[] encoded : encodedCues) {
+                output.writeInt(encoded.length);
+            }
+            for (byte[] encoded : encodedCues) {
+                output.write(encoded);
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "Cannot write subtitle cache entry " + key, e);
+            tempFile.delete();
+            return;
+        }
+        if (!tempFile.renameTo(file)) {
+            tempFile.delete();
+            return;
+        }
+        evict();
+    }
+
+    private static File getFile(String key) {
+        return cacheDir != null ? new File(cacheDir, key + FILE_EXTENSION) : null;
+    }
+
+    private static void evict() {
+        File[] files = cacheDir.listFiles((dir, name) -> name.endsWith(FILE_EXTENSION));
+        if (files == null) {
+            return;
+        }
+        long totalSize = 0;
+        for (File file : files) {
+            totalSize += file.length();
+        }
+        if (totalSize <= MAX_CACHE_SIZE_BYTES) {
+            return;
+        }
+        Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+        for (File file : files) {
+            if (totalSize <= MAX_CACHE_SIZE_BYTES) {
+                break;
+            }
+            totalSize -= file.length();
+            file.delete();
+        }
+    }
+}
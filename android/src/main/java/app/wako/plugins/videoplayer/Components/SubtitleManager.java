@@ -11,8 +11,10 @@ import android.widget.ImageButton;
 import androidx.media3.common.C;
 import androidx.media3.common.Format;
 import androidx.media3.common.MediaItem;
+import androidx.media3.common.TrackSelectionOverride;
 import androidx.media3.common.Tracks;
 import androidx.media3.common.util.UnstableApi;
+import androidx.media3.datasource.DataSource;
 import androidx.media3.exoplayer.ExoPlayer;
 import androidx.media3.exoplayer.trackselection.DefaultTrackSelector;
 import androidx.media3.exoplayer.trackselection.TrackSelector;
@@ -22,10 +24,17 @@ import androidx.media3.ui.PlayerControlView;
 import app.wako.plugins.videoplayer.R;
 import app.wako.plugins.videoplayer.Utilities.CustomDefaultTrackNameProvider;
 import app.wako.plugins.videoplayer.Utilities.SubtitleUtils;
+import app.wako.plugins.videoplayer.Utilities.TrackIndex;
+import app.wako.plugins.videoplayer.Utilities.TrackSelectionTransaction;
 
 import java.lang.reflect.Field;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 
 @UnstableApi
 public class SubtitleManager {
@@ -36,11 +45,18 @@ public class SubtitleManager {
     private final ImageButton toggleButton;
     private DefaultTrackSelector trackSelector;
     private ExoPlayer player;
+    // Reads the subtitle files like the player does, through the media cache
+    private DataSource.Factory dataSourceFactory;
     private String subtitleForegroundColor = "";
     private String subtitleBackgroundColor = "";
     private Integer subtitleFontSize = 16;
     public String preferredLocale;
     private CustomDefaultTrackNameProvider customDefaultTrackNameProvider;
+    // All the external subtitles of the video and the urls of those attached to the media item
+    private final List<SubtitleItem> externalSubtitles = new ArrayList<>();
+    private final Set<String> loadedSubtitleUrls = new HashSet<>();
+    // Url of the external subtitle to select as soon as its track is exposed by the player
+    private String pendingSubtitleUrl;
 
     private static final String TAG = SubtitleManager.class.getName();
 
@@ -132,32 +148,179 @@ public class SubtitleManager {
         this.player = player;
     }
 
+    public void setDataSourceFactory(DataSource.Factory dataSourceFactory) {
+        this.dataSourceFactory = dataSourceFactory;
+    }
+
     public void setTrackSelector(DefaultTrackSelector trackSelector) {
         this.trackSelector = trackSelector;
     }
 
-    public void loadExternalSubtitles(ArrayList<SubtitleItem> subtitles, MediaItem.Builder mediaItemBuilder) {
-        if (!subtitles.isEmpty()) {
-
-            List<MediaItem.SubtitleConfiguration> subtitleConfigurations = new ArrayList<>();
-            for (int i = 0; i < subtitles.size(); i++) {
-                SubtitleItem subtitleItem = subtitles.get(i);
+    /**
+     * Attaches the external subtitles to the media item once they are prepared in the background.
+     * In lazy mode only the subtitles in the requested or preferred language are attached, the
+     * other ones are fetched when selected with selectExternalSubtitle. The preparation of each
+     * subtitle is bounded by a short timeout, so the player starts even when a subtitle server
+     * is slow: the subtitles that time out are not attached and, like the lazy ones, are fetched
+     * again when selected.
+     *
+     * @param subtitles        The external subtitles
+     * @param mediaItemBuilder The builder of the media item to play
+     * @param lazy             Whether the subtitles not requested are loaded on demand
+     * @param subtitleTrackId  The id of the requested subtitle, the url for external subtitles
+     * @param subtitleLocale   The language of the requested subtitle
+     * @param onLoaded         Called on the main thread once the builder holds the subtitles
+     */
+    public void loadExternalSubtitles(ArrayList<SubtitleItem> subtitles, MediaItem.Builder mediaItemBuilder, boolean lazy, String subtitleTrackId, String subtitleLocale, Runnable onLoaded) {
+        List<SubtitleItem> subtitlesToLoad = new ArrayList<>();
+        for (SubtitleItem subtitle : subtitles) {
+            if (!lazy || isRequestedSubtitle(subtitle, subtitleTrackId, subtitleLocale)) {
+                subtitlesToLoad.add(subtitle);
+            }
+        }
+        setExternalSubtitles(subtitles, new ArrayList<>());
+        if (lazy) {
+            Log.d(TAG, "Lazy subtitles: loading " + subtitlesToLoad.size() + " of " + subtitles.size());
+        }
+        if (subtitlesToLoad.isEmpty()) {
+            onLoaded.run();
+            return;
+        }
+        SubtitlePreparer.prepare(fragmentContext, dataSourceFactory, subtitlesToLoad, subtitleConfigurations -> {
+            addLoadedSubtitles(subtitleConfigurations);
+            mediaItemBuilder.setSubtitleConfigurations(subtitleConfigurations);
+            onLoaded.run();
+        });
+    }
 
+    /**
+     * Records the external subtitles of the video.
+     *
+     * @param subtitles              All the external subtitles
+     * @param subtitleConfigurations The configurations attached to the media item
+     */
+    public void setExternalSubtitles(List<SubtitleItem> subtitles, List<MediaItem.SubtitleConfiguration> subtitleConfigurations) {
+        externalSubtitles.clear();
+        externalSubtitles.addAll(subtitles);
+        loadedSubtitleUrls.clear();
+        addLoadedSubtitles(subtitleConfigurations);
+        pendingSubtitleUrl = null;
+    }
 
-                MediaItem.SubtitleConfiguration subtitle = SubtitleUtils.buildSubtitle(
-                        fragmentContext,
-                        Uri.parse(subtitleItem.url),
-                        subtitleItem.name,
-                        subtitleItem.lang
-                );
+    private void addLoadedSubtitles(List<MediaItem.SubtitleConfiguration> subtitleConfigurations) {
+        for (MediaItem.SubtitleConfiguration subtitleConfiguration : subtitleConfigurations) {
+            // The id of an external subtitle is its url
+            loadedSubtitleUrls.add(subtitleConfiguration.id);
+        }
+    }
 
-                subtitleConfigurations.add(subtitle);
+    /**
+     * Lists the external subtitles of the video, including the ones not loaded yet.
+     *
+     * @return One entry per subtitle with its url, name, lang and whether it is loaded
+     */
+    public List<Map<String, Object>> getExternalSubtitles() {
+        List<Map<String, Object>> subtitles = new ArrayList<>();
+        for (SubtitleItem subtitle : externalSubtitles) {
+            Map<String, Object> info = new HashMap<>();
+            info.put("url", subtitle.url);
+            info.put("name", subtitle.name);
+            info.put("lang", subtitle.lang);
+            info.put("loaded", loadedSubtitleUrls.contains(subtitle.url));
+            subtitles.add(info);
+        }
+        return subtitles;
+    }
 
+    /**
+     * Selects an external subtitle, fetching and attaching it first if it is not loaded yet.
+     * Attaching a subtitle sets the media item again, which prepares the media again: the
+     * buffer is dropped and playback rebuffers briefly from the current position, keeping
+     * the play state. Subtitles already loaded are selected without preparing again.
+     * Nothing changes when the subtitle cannot be read or is not recognized.
+     *
+     * @param url The url of the subtitle
+     * @return false if the url is not one of the external subtitles of the video
+     */
+    public boolean selectExternalSubtitle(String url) {
+        SubtitleItem subtitle = null;
+        for (SubtitleItem item : externalSubtitles) {
+            if (item.url.equals(url)) {
+                subtitle = item;
+                break;
             }
-            mediaItemBuilder.setSubtitleConfigurations(subtitleConfigurations);
+        }
+        if (subtitle == null || player == null) {
+            return false;
+        }
+        pendingSubtitleUrl = url;
+        if (loadedSubtitleUrls.contains(url)) {
+            applyPendingSubtitle(player.getCurrentTracks());
+            return true;
+        }
+        final MediaItem requestedMediaItem = player.getCurrentMediaItem();
+        if (requestedMediaItem == null || requestedMediaItem.localConfiguration == null) {
+            // The player is not given its media item yet, it can be selected again later
+            pendingSubtitleUrl = null;
+            return false;
+        }
+        final ExoPlayer requestedPlayer = player;
+        final Uri requestedUri = requestedMediaItem.localConfiguration.uri;
+        ArrayList<SubtitleItem> subtitlesToLoad = new ArrayList<>();
+        subtitlesToLoad.add(subtitle);
+        SubtitlePreparer.prepare(fragmentContext, dataSourceFactory, subtitlesToLoad, subtitleConfigurations -> {
+            MediaItem mediaItem = requestedPlayer.getCurrentMediaItem();
+            if (player != requestedPlayer || mediaItem == null || mediaItem.localConfiguration == null
+                    || !Objects.equals(mediaItem.localConfiguration.uri, requestedUri)) {
+                // The player was released or given another video meanwhile
+                return;
+            }
+            if (subtitleConfigurations.isEmpty() || loadedSubtitleUrls.contains(url)) {
+                // Rejected, or attached by a concurrent selection
+                if (subtitleConfigurations.isEmpty() && url.equals(pendingSubtitleUrl)) {
+                    pendingSubtitleUrl = null;
+                }
+                return;
+            }
+            addLoadedSubtitles(subtitleConfigurations);
+            List<MediaItem.SubtitleConfiguration> configurations = new ArrayList<>(mediaItem.localConfiguration.subtitleConfigurations);
+            configurations.addAll(subtitleConfigurations);
+            // Replacing the item would restart it from its default position, so set it again at the current one
+            player.setMediaItem(mediaItem.buildUpon().setSubtitleConfigurations(configurations).build(), player.getCurrentPosition());
+        });
+        return true;
+    }
+
+    /**
+     * Selects the subtitle requested with selectExternalSubtitle once the player exposes its track.
+     *
+     * @param tracks The current tracks of the player
+     */
+    public void applyPendingSubtitle(Tracks tracks) {
+        if (pendingSubtitleUrl == null || player == null || trackSelector == null) {
+            return;
+        }
+        Tracks.Group trackGroup = TrackIndex.of(tracks).findById(C.TRACK_TYPE_TEXT, pendingSubtitleUrl);
+        if (trackGroup != null) {
+            pendingSubtitleUrl = null;
+            TrackSelectionTransaction.begin(trackSelector)
+                    .setTrackTypeDisabled(C.TRACK_TYPE_TEXT, false)
+                    .setOverrideForType(new TrackSelectionOverride(trackGroup.getMediaTrackGroup(), 0))
+                    .commit();
         }
     }
 
+    private boolean isRequestedSubtitle(SubtitleItem subtitle, String subtitleTrackId, String subtitleLocale) {
+        if (subtitle.url.equals(subtitleTrackId)) {
+            return true;
+        }
+        String language = subtitle.lang != null ? subtitle.lang : SubtitleUtils.getSubtitleLanguage(Uri.parse(subtitle.url));
+        if (language == null) {
+            return false;
+        }
+        return language.equals(subtitleLocale) || language.equals(preferredLocale);
+    }
+
     public void setSubtitleStyle() {
         SubtitleUtils.setSubtitleStyle(
                 subtitleForegroundColor,
@@ -168,21 +331,23 @@ public class SubtitleManager {
 
     }
 
+    /**
+     * Computes the names shown in the track dialog for the new tracks, in the background.
+     *
+     * @param tracks The new tracks of the player
+     */
+    public void prewarmTrackNames(Tracks tracks) {
+        if (customDefaultTrackNameProvider != null) {
+            customDefaultTrackNameProvider.prewarm(tracks);
+        }
+    }
+
     public void refreshSubtitleButton() {
         if(trackSelector == null || player == null) {
             return ;
         }
         // Check if subtitle tracks are available
-        boolean hasSubtitles = false;
-        if (player != null) {
-            Tracks tracks = player.getCurrentTracks();
-            for (Tracks.Group trackGroup : tracks.getGroups()) {
-                if (trackGroup.getType() == C.TRACK_TYPE_TEXT) {
-                    hasSubtitles = true;
-                    break;
-                }
-            }
-        }
+        boolean hasSubtitles = TrackIndex.of(player).hasType(C.TRACK_TYPE_TEXT);
 
 
         this.playerView.setShowSubtitleButton(hasSubtitles);
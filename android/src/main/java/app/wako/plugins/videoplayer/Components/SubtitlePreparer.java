@@ -0,0 +1,154 @@
+package app.wako.plugins.videoplayer.Components;
+
+import android.content.Context;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+import androidx.media3.common.C;
+import androidx.media3.common.MediaItem;
+import androidx.media3.common.util.UnstableApi;
+import androidx.media3.datasource.DataSource;
+import androidx.media3.datasource.DataSpec;
+import androidx.media3.datasource.DefaultDataSource;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import app.wako.plugins.videoplayer.Utilities.SubtitleUtils;
+
+/**
+ * Builds the subtitle configurations of the external subtitles off the main thread.
+ * Subtitles whose url does not tell the format have their first bytes fetched and
+ * sniffed, so that a wrongly guessed format does not make the player fail to parse them.
+ * The bytes are read through the data sources of the player, with its cache and its
+ * handling of every scheme. Subtitles that cannot be read or are not recognized are left out.
+ * Each subtitle gets a short timeout so that a slow server does not hold the start of the
+ * player: the subtitles not prepared in time are left out as well and stay loadable later.
+ * Content URI name queries are done here as well instead of on the main thread.
+ */
+@UnstableApi
+public class SubtitlePreparer {
+
+    private static final String TAG = SubtitlePreparer.class.getName();
+    private static final int SNIFF_BYTES = 1024;
+    private static final int THREAD_COUNT = 4;
+    // Time given to each subtitle once its preparation starts
+    private static final long PREPARE_TIMEOUT_MS = 2000;
+
+    // Subtitles are prepared in parallel on the pool, results are gathered on the collector
+    // so that pool threads never wait on each other
+    private static final ExecutorService executor = Executors.newFixedThreadPool(THREAD_COUNT);
+    private static final ExecutorService collector = Executors.newSingleThreadExecutor();
+    private static final ScheduledExecutorService timeoutScheduler = Executors.newSingleThreadScheduledExecutor();
+    private static final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    /**
+     * Receives the prepared configurations on the main thread, the rejected subtitles are not included.
+     */
+    public interface Callback {
+        void onPrepared(List<MediaItem.SubtitleConfiguration> subtitleConfigurations);
+    }
+
+    private SubtitlePreparer() {}
+
+    /**
+     * Prepares the configurations of the subtitles in the background.
+     *
+     * @param context           The Android context
+     * @param dataSourceFactory The data sources of the player, null for plain ones
+     * @param subtitles         The external subtitles, copied before returning
+     * @param callback          Called on the main thread with the configurations of the subtitles kept, in order,
+     *                          the subtitles not prepared within the timeout are not included
+     */
+    public static void prepare(Context context, @Nullable DataSource.Factory dataSourceFactory, List<SubtitleItem> subtitles, Callback callback) {
+        final Context appContext = context.getApplicationContext();
+        final DataSource.Factory sniffDataSourceFactory = dataSourceFactory != null ? dataSourceFactory : new DefaultDataSource.Factory(appContext);
+        final List<SubtitleItem> items = new ArrayList<>(subtitles);
+        final List<Future<MediaItem.SubtitleConfiguration>> futures = new ArrayList<>();
+        for (SubtitleItem item : items) {
+            FutureTask<MediaItem.SubtitleConfiguration> task = new FutureTask<>(() -> prepareSubtitle(appContext, sniffDataSourceFactory, item));
+            futures.add(task);
+            executor.execute(() -> {
+                // The timeout starts with the preparation, not while the subtitle waits for a thread
+                ScheduledFuture<?> timeout = timeoutScheduler.schedule(() -> task.cancel(true), PREPARE_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+                task.run();
+                timeout.cancel(false);
+            });
+        }
+        collector.execute(() -> {
+            List<MediaItem.SubtitleConfiguration> subtitleConfigurations = new ArrayList<>();
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    MediaItem.SubtitleConfiguration subtitleConfiguration = futures.get(i).get();
+                    if (subtitleConfiguration != null) {
+                        subtitleConfigurations.add(subtitleConfiguration);
+                    }
+                } catch (CancellationException e) {
+                    Log.w(TAG, "Timed out preparing subtitle " + items.get(i).url);
+                } catch (Exception e) {
+                    Log.e(TAG, "Error preparing subtitle " + items.get(i).url, e);
+                }
+            }
+            mainHandler.post(() -> callback.onPrepared(subtitleConfigurations));
+        });
+    }
+
+    /**
+     * @return The configuration of the subtitle, null if it cannot be read or is not a subtitle
+     */
+    private static MediaItem.SubtitleConfiguration prepareSubtitle(Context context, DataSource.Factory dataSourceFactory, SubtitleItem item) {
+        Uri uri = Uri.parse(item.url);
+        String mime = SubtitleUtils.getSubtitleMimeFromExtension(uri);
+        if (mime == null) {
+            mime = sniff(dataSourceFactory, uri);
+            Log.d(TAG, "Sniffed " + mime + " for " + item.url);
+        }
+        if (mime == null) {
+            // An error page or an unreachable file would only make the player fail later
+            Log.w(TAG, "Rejected subtitle " + item.url);
+            return null;
+        }
+        return SubtitleUtils.buildSubtitle(context, uri, item.name, item.lang, mime);
+    }
+
+    /**
+     * Reads the first bytes of a subtitle file and detects its format.
+     *
+     * @return The MIME type or null if it cannot be read or recognized
+     */
+    private static String sniff(DataSource.Factory dataSourceFactory, Uri uri) {
+        DataSource dataSource = dataSourceFactory.createDataSource();
+        try {
+            dataSource.open(new DataSpec.Builder().setUri(uri).setLength(SNIFF_BYTES).build());
+            byte[] buffer = new byte[SNIFF_BYTES];
+            int length = 0;
+            int read;
+            while (length < SNIFF_BYTES && (read = dataSource.read(buffer, length, SNIFF_BYTES - length)) != C.RESULT_END_OF_INPUT) {
+                length += read;
+            }
+            return SubtitleUtils.sniffSubtitleMime(Arrays.copyOf(buffer, length));
+        } catch (IOException e) {
+            Log.w(TAG, "Cannot sniff subtitle " + uri + ": " + e.getMessage());
+            return null;
+        } finally {
+            try {
+                dataSource.close();
+            } catch (IOException e) {
+                Log.w(TAG, "Error closing subtitle " + uri + ": " + e.getMessage());
+            }
+        }
+    }
+}
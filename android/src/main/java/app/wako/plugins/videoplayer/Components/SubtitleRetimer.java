@@ -0,0 +1,264 @@
+package app.wako.plugins.videoplayer.Components;
+
+import android.os.Handler;
+
+import androidx.annotation.NonNull;
+import androidx.media3.common.C;
+import androidx.media3.common.Format;
+import androidx.media3.common.PlaybackParameters;
+import androidx.media3.common.Player;
+import androidx.media3.common.Tracks;
+import androidx.media3.common.util.UnstableApi;
+import androidx.media3.exoplayer.ExoPlayer;
+
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+import app.wako.plugins.videoplayer.Utilities.TrackIndex;
+
+/**
+ * Shifts and stretches the external subtitle being displayed. A cue starting at t in the
+ * file is shown at t * rate + offset. The cues come from the timeline captured when the
+ * subtitle was parsed, so a change applies at once without parsing or preparing again.
+ * While the subtitle is re-timed, the cues of the text renderer are replaced by the re-timed
+ * ones in the RetimingTextOutput of the player, before any listener or view gets them, and
+ * they are refreshed at the next cue boundary only.
+ * The timeline of the selected subtitle is loaded in the background, it can be read from disk.
+ */
+@UnstableApi
+public class SubtitleRetimer implements Player.Listener {
+
+    public static final float MIN_RATE = 0.5f;
+    public static final float MAX_RATE = 2f;
+
+    private static final Executor timelineLoader = Executors.newSingleThreadExecutor();
+
+    private final ExoPlayer player;
+    private final RetimingTextOutput textOutput;
+    private final Handler handler;
+    private long offsetMs = 0;
+    private float rate = 1f;
+    // Url of the selected subtitle and its timeline, null until loaded or for embedded subtitles
+    private String selectedSubtitleId;
+    private SubtitleTimeline timeline;
+    private boolean loadingTimeline = false;
+    // Incremented by each load so that the result of an outdated one is ignored
+    private int loadGeneration = 0;
+
+    public SubtitleRetimer(ExoPlayer player, RetimingTextOutput textOutput) {
+        this.player = player;
+        this.textOutput = textOutput;
+        this.handler = new Handler(player.getApplicationLooper());
+    }
+
+    /**
+     * Starts following the player and routing its cues.
+     */
+    public void start() {
+        player.addListener(this);
+        textOutput.setRetimer(this);
+        selectedSubtitleId = findSelectedSubtitleId(player.getCurrentTracks());
+        loadTimeline();
+    }
+
+    /**
+     * Stops following the player and gives the cues of the text renderer back to it.
+     */
+    public void stop() {
+        player.removeListener(this);
+        handler.removeCallbacks(renderRunnable);
+        loadGeneration++;
+        loadingTimeline = false;
+        textOutput.setRetimer(null);
+    }
+
+    public long getOffsetMs() {
+        return offsetMs;
+    }
+
+    public float getRate() {
+        return rate;
+    }
+
+    /**
+     * @param offsetMs Delay applied to the cues in ms, negative to show them earlier
+     */
+    public void setOffsetMs(long offsetMs) {
+        this.offsetMs = offsetMs;
+        refresh();
+    }
+
+    /**
+     * @param rate Factor applied to the cue times, clamped to [MIN_RATE, MAX_RATE]
+     * @return The rate applied
+     */
+    public float setRate(float rate) {
+        this.rate = clampRate(rate);
+        refresh();
+        return this.rate;
+    }
+
+    /**
+     * @param rate A requested rate
+     * @return The rate clamped to [MIN_RATE, MAX_RATE]
+     */
+    static float clampRate(float rate) {
+        return Math.max(MIN_RATE, Math.min(MAX_RATE, rate));
+    }
+
+    /**
+     * @param positionUs Playback position
+     * @param offsetMs   Delay applied to the cues
+     * @param rate       Factor applied to the cue times
+     * @return The time in the subtitle file displayed at that position, negative before the first cue time
+     */
+    static long toSubtitleTimeUs(long positionUs, long offsetMs, float rate) {
+        return (long) ((positionUs - offsetMs * 1000) / (double) rate);
+    }
+
+    /**
+     * Inverse of {@link #toSubtitleTimeUs}.
+     *
+     * @param subtitleTimeUs Time in the subtitle file
+     * @param offsetMs       Delay applied to the cues
+     * @param rate           Factor applied to the cue times
+     * @return The playback position at which that time is displayed
+     */
+    static long toPositionUs(long subtitleTimeUs, long offsetMs, float rate) {
+        return (long) (subtitleTimeUs * (double) rate) + offsetMs * 1000;
+    }
+
+    @Override
+    public void onTracksChanged(@NonNull Tracks tracks) {
+        String subtitleId = findSelectedSubtitleId(tracks);
+        if (!Objects.equals(subtitleId, selectedSubtitleId)) {
+            selectedSubtitleId = subtitleId;
+            loadTimeline();
+            refresh();
+        }
+    }
+
+    /**
+     * Called by the text output for each cue change of the text renderer.
+     *
+     * @return Whether the cues are replaced by re-timed ones
+     */
+    boolean onRendererCues() {
+        if (isRetiming()) {
+            render();
+            return true;
+        }
+        if (isRetimingRequested() && timeline == null && !loadingTimeline) {
+            // The subtitle may have been parsed since the last load, its cues are coming
+            loadTimeline();
+        }
+        return false;
+    }
+
+    @Override
+    public void onIsPlayingChanged(boolean isPlaying) {
+        if (isRetiming()) {
+            render();
+        }
+    }
+
+    @Override
+    public void onPositionDiscontinuity(@NonNull Player.PositionInfo oldPosition, @NonNull Player.PositionInfo newPosition, int reason) {
+        if (isRetiming()) {
+            render();
+        }
+    }
+
+    @Override
+    public void onPlaybackParametersChanged(@NonNull PlaybackParameters playbackParameters) {
+        if (isRetiming()) {
+            render();
+        }
+    }
+
+    private boolean isRetimingRequested() {
+        return offsetMs != 0 || rate != 1f;
+    }
+
+    private boolean isRetiming() {
+        // Null timeline for the subtitles embedded in the stream, which are left to the player
+        return isRetimingRequested() && timeline != null;
+    }
+
+    /**
+     * Loads the timeline of the selected subtitle, from memory at once when it was parsed
+     * recently, otherwise in the background and then displayed if re-timing.
+     */
+    private void loadTimeline() {
+        final int generation = ++loadGeneration;
+        final String subtitleId = selectedSubtitleId;
+        timeline = null;
+        loadingTimeline = false;
+        if (subtitleId == null) {
+            return;
+        }
+        timeline = SubtitleTimeline.getLoaded(subtitleId);
+        if (timeline != null) {
+            return;
+        }
+        loadingTimeline = true;
+        timelineLoader.execute(() -> {
+            final SubtitleTimeline loadedTimeline = SubtitleTimeline.get(subtitleId);
+            handler.post(() -> {
+                if (generation != loadGeneration) {
+                    return;
+                }
+                loadingTimeline = false;
+                timeline = loadedTimeline;
+                if (isRetiming()) {
+                    render();
+                }
+            });
+        });
+    }
+
+    private void refresh() {
+        if (isRetimingRequested() && timeline == null && !loadingTimeline) {
+            loadTimeline();
+        }
+        if (isRetiming()) {
+            render();
+        } else {
+            handler.removeCallbacks(renderRunnable);
+            textOutput.showRendererCues();
+        }
+    }
+
+    /**
+     * Displays the re-timed cues of the current position and schedules the next change.
+     */
+    private void render() {
+        handler.removeCallbacks(renderRunnable);
+        if (!isRetiming()) {
+            return;
+        }
+        long positionUs = player.getCurrentPosition() * 1000;
+        long subtitleTimeUs = toSubtitleTimeUs(positionUs, offsetMs, rate);
+        textOutput.showRetimedCues(timeline.getCuesAt(subtitleTimeUs), positionUs);
+
+        if (!player.isPlaying()) {
+            return;
+        }
+        long nextChangeTimeUs = timeline.getNextChangeTimeUs(subtitleTimeUs);
+        if (nextChangeTimeUs == C.TIME_UNSET) {
+            return;
+        }
+        long nextChangePositionUs = toPositionUs(nextChangeTimeUs, offsetMs, rate);
+        float speed = player.getPlaybackParameters().speed;
+        long delayMs = (long) Math.ceil((nextChangePositionUs - positionUs) / 1000d / speed);
+        handler.postDelayed(renderRunnable, Math.max(1, delayMs));
+    }
+
+    private static String findSelectedSubtitleId(Tracks tracks) {
+        Format format = TrackIndex.of(tracks).getSelectedFormat(C.TRACK_TYPE_TEXT);
+        return format != null ? format.id : null;
+    }
+
+    private final Runnable renderRunnable = this::render;
+}
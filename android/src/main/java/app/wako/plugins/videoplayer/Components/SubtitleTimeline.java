@@ -0,0 +1,178 @@
+package app.wako.plugins.videoplayer.Components;
+
+import androidx.annotation.Nullable;
+import androidx.media3.common.C;
+import androidx.media3.common.text.Cue;
+import androidx.media3.common.util.UnstableApi;
+import androidx.media3.extractor.text.CuesWithTiming;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The parsed cues of an external subtitle sorted by start time, queried by playback time.
+ * Timelines are captured by the parser factory when the subtitle is parsed, or read from the
+ * subtitle cache, so that the cues can be re-timed later without parsing the file again.
+ * Only the last timelines are kept in memory, older ones are read back from the subtitle cache,
+ * which reads a file, so get must not be called on the main thread; getLoaded does not block.
+ */
+@UnstableApi
+public class SubtitleTimeline {
+
+    // A timeline holds every cue of its file, only the last ones are kept in memory
+    private static final int MAX_TIMELINES = 4;
+
+    // Subtitle cache key of each subtitle url, to rebuild the timelines evicted from memory
+    private static final Map<String, String> cacheKeys = new HashMap<>();
+
+    private static final Map<String, SubtitleTimeline> timelines = new LinkedHashMap<String, SubtitleTimeline>(MAX_TIMELINES, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, SubtitleTimeline> eldest) {
+            return size() > MAX_TIMELINES;
+        }
+    };
+
+    private final List<CuesWithTiming> cueGroups;
+    private final long[] startTimesUs;
+    private final long[] endTimesUs;
+    // Latest end time of the groups up to each index, bounds the backward scans
+    private final long[] maxEndTimesUs;
+
+    private SubtitleTimeline(List<CuesWithTiming> cues) {
+        cueGroups = new ArrayList<>(cues);
+        Collections.sort(cueGroups, (a, b) -> Long.compare(a.startTimeUs, b.startTimeUs));
+        int count = cueGroups.size();
+        startTimesUs = new long[count];
+        endTimesUs = new long[count];
+        maxEndTimesUs = new long[count];
+        for (int i = 0; i < count; i++) {
+            startTimesUs[i] = cueGroups.get(i).startTimeUs;
+        }
+        long maxEndTimeUs = Long.MIN_VALUE;
+        for (int i = 0; i < count; i++) {
+            long durationUs = cueGroups.get(i).durationUs;
+            if (durationUs != C.TIME_UNSET) {
+                endTimesUs[i] = startTimesUs[i] + durationUs;
+            } else {
+                // Cues without duration are replaced by the next ones
+                endTimesUs[i] = i + 1 < count ? startTimesUs[i + 1] : Long.MAX_VALUE;
+            }
+            maxEndTimeUs = Math.max(maxEndTimeUs, endTimesUs[i]);
+            maxEndTimesUs[i] = maxEndTimeUs;
+        }
+    }
+
+    /**
+     * Stores the timeline of a subtitle, replacing the previous one of the same url.
+     *
+     * @param url      The url of the subtitle
+     * @param cacheKey The key of the cues in the SubtitleCache, null if they are not cached
+     * @param cues     The parsed cues
+     */
+    public static void register(String url, @Nullable String cacheKey, List<CuesWithTiming> cues) {
+        SubtitleTimeline timeline = new SubtitleTimeline(cues);
+        synchronized (timelines) {
+            timelines.put(url, timeline);
+            if (cacheKey != null) {
+                cacheKeys.put(url, cacheKey);
+            } else {
+                cacheKeys.remove(url);
+            }
+        }
+    }
+
+    /**
+     * Gets the timeline of a subtitle if it is in memory.
+     *
+     * @param url The url of the subtitle
+     * @return The timeline or null if it must be read with {@link #get}
+     */
+    @Nullable
+    public static SubtitleTimeline getLoaded(String url) {
+        synchronized (timelines) {
+            return timelines.get(url);
+        }
+    }
+
+    /**
+     * Gets the timeline of a subtitle, possibly reading it from the subtitle cache.
+     * Must not be called on the main thread.
+     *
+     * @param url The url of the subtitle
+     * @return The timeline or null if the subtitle was not parsed
+     */
+    @Nullable
+    public static SubtitleTimeline get(String url) {
+        String cacheKey;
+        synchronized (timelines) {
+            SubtitleTimeline timeline = timelines.get(url);
+            if (timeline != null) {
+                return timeline;
+            }
+            cacheKey = cacheKeys.get(url);
+        }
+        List<CuesWithTiming> cues = cacheKey != null ? SubtitleCache.get(cacheKey) : null;
+        if (cues == null) {
+            return null;
+        }
+        SubtitleTimeline timeline = new SubtitleTimeline(cues);
+        synchronized (timelines) {
+            timelines.put(url, timeline);
+        }
+        return timeline;
+    }
+
+    /**
+     * @param timeUs Time in the subtitle file
+     * @return The cues displayed at that time
+     */
+    public List<Cue> getCuesAt(long timeUs) {
+        int index = lastIndexStartingAtOrBefore(timeUs);
+        if (index < 0) {
+            return Collections.emptyList();
+        }
+        List<Cue> cues = new ArrayList<>();
+        for (int i = index; i >= 0 && maxEndTimesUs[i] > timeUs; i--) {
+            if (endTimesUs[i] > timeUs) {
+                // Groups are scanned backwards, insert first to keep the file order
+                cues.addAll(0, cueGroups.get(i).cues);
+            }
+        }
+        return cues;
+    }
+
+    /**
+     * @param timeUs Time in the subtitle file
+     * @return The next time after timeUs at which the displayed cues change, C.TIME_UNSET if none
+     */
+    public long getNextChangeTimeUs(long timeUs) {
+        int index = lastIndexStartingAtOrBefore(timeUs);
+        long nextChangeUs = index + 1 < startTimesUs.length ? startTimesUs[index + 1] : Long.MAX_VALUE;
+        for (int i = index; i >= 0 && maxEndTimesUs[i] > timeUs; i--) {
+            if (endTimesUs[i] > timeUs) {
+                nextChangeUs = Math.min(nextChangeUs, endTimesUs[i]);
+            }
+        }
+        return nextChangeUs == Long.MAX_VALUE ? C.TIME_UNSET : nextChangeUs;
+    }
+
+    private int lastIndexStartingAtOrBefore(long timeUs) {
+        int low = 0;
+        int high = startTimesUs.length - 1;
+        int index = -1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (startTimesUs[mid] <= timeUs) {
+                index = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return index;
+    }
+}
@@ -0,0 +1,99 @@
+package app.wako.plugins.videoplayer.Components;
+
+import android.os.Handler;
+
+import androidx.media3.common.C;
+import androidx.media3.common.Player;
+import androidx.media3.exoplayer.ExoPlayer;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import app.wako.plugins.videoplayer.Notifications.NotificationCenter;
+
+/**
+ * Posts the playback position as "playerTimeUpdate" notifications at a fixed interval,
+ * so JS does not have to poll getCurrentTime. Runs on the player's application looper
+ * and only while the player is playing.
+ */
+public class TimeUpdateEmitter implements Player.Listener {
+
+    public static final long MIN_INTERVAL_MS = 250;
+    public static final long MAX_INTERVAL_MS = 5000;
+
+    private final ExoPlayer player;
+    private final Handler handler;
+    private final long intervalMs;
+
+    /**
+     * @param player     The player to follow
+     * @param intervalMs Interval between two updates, clamped to [MIN_INTERVAL_MS, MAX_INTERVAL_MS]
+     */
+    public TimeUpdateEmitter(ExoPlayer player, long intervalMs) {
+        this.player = player;
+        this.handler = new Handler(player.getApplicationLooper());
+        this.intervalMs = Math.max(MIN_INTERVAL_MS, Math.min(MAX_INTERVAL_MS, intervalMs));
+    }
+
+    /**
+     * Starts following the player, updates begin as soon as it plays.
+     */
+    public void start() {
+        player.addListener(this);
+        if (player.isPlaying()) {
+            schedule(0);
+        }
+    }
+
+    /**
+     * Stops the updates and stops following the player.
+     */
+    public void stop() {
+        player.removeListener(this);
+        handler.removeCallbacks(updateRunnable);
+    }
+
+    @Override
+    public void onIsPlayingChanged(boolean isPlaying) {
+        if (isPlaying) {
+            schedule(0);
+        } else {
+            handler.removeCallbacks(updateRunnable);
+            // Send the position where playback stopped
+            postUpdate();
+        }
+    }
+
+    @Override
+    public void onPositionDiscontinuity(Player.PositionInfo oldPosition, Player.PositionInfo newPosition, int reason) {
+        if (reason == Player.DISCONTINUITY_REASON_SEEK && !player.isPlaying()) {
+            // A seek while paused is not followed by any periodic update
+            postUpdate();
+        }
+    }
+
+    private void schedule(long delayMs) {
+        handler.removeCallbacks(updateRunnable);
+        handler.postDelayed(updateRunnable, delayMs);
+    }
+
+    private void postUpdate() {
+        long durationMs = player.getDuration();
+        Map<String, Object> info = new HashMap<>();
+        info.put("currentTime", player.getCurrentPosition() / 1000d);
+        info.put("bufferedTime", player.getBufferedPosition() / 1000d);
+        info.put("duration", durationMs == C.TIME_UNSET ? 0d : durationMs / 1000d);
+        info.put("isLive", player.isCurrentMediaItemLive());
+        NotificationCenter.defaultCenter().postNotification("playerTimeUpdate", info);
+    }
+
+    private final Runnable updateRunnable = new Runnable() {
+        @Override
+        public void run() {
+            postUpdate();
+            if (player.isPlaying()) {
+                handler.postDelayed(this, intervalMs);
+            }
+        }
+    };
+}
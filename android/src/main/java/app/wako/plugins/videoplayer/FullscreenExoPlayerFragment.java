@@ -9,15 +9,15 @@ import android.content.pm.ActivityInfo;
 import android.content.res.Configuration;
 import android.content.res.TypedArray;
 import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
 import android.graphics.drawable.Drawable;
 import android.media.AudioManager;
 import android.net.Uri;
-import android.os.AsyncTask;
 import android.os.Bundle;
 import android.os.Handler;
 import android.os.Looper;
+import android.os.Trace;
 import android.util.Log;
+import android.view.Choreographer;
 import android.view.GestureDetector;
 import android.view.KeyEvent;
 import android.view.LayoutInflater;
@@ -42,6 +42,7 @@ import androidx.media3.cast.CastPlayer;
 import androidx.media3.cast.SessionAvailabilityListener;
 import androidx.media3.common.AudioAttributes;
 import androidx.media3.common.C;
+import androidx.media3.common.Format;
 import androidx.media3.common.MediaItem;
 import androidx.media3.common.MediaMetadata;
 import androidx.media3.common.MimeTypes;
@@ -50,19 +51,9 @@ import androidx.media3.common.Player;
 import androidx.media3.common.Tracks;
 import androidx.media3.common.util.UnstableApi;
 import androidx.media3.common.util.Util;
-import androidx.media3.exoplayer.DefaultLoadControl;
-import androidx.media3.exoplayer.DefaultRenderersFactory;
 import androidx.media3.exoplayer.ExoPlayer;
-import androidx.media3.exoplayer.LoadControl;
-import androidx.media3.exoplayer.RenderersFactory;
 import androidx.media3.exoplayer.SeekParameters;
-import androidx.media3.exoplayer.source.DefaultMediaSourceFactory;
-import androidx.media3.exoplayer.trackselection.AdaptiveTrackSelection;
 import androidx.media3.exoplayer.trackselection.DefaultTrackSelector;
-import androidx.media3.exoplayer.upstream.DefaultBandwidthMeter;
-import androidx.media3.extractor.DefaultExtractorsFactory;
-import androidx.media3.extractor.ts.DefaultTsPayloadReaderFactory;
-import androidx.media3.extractor.ts.TsExtractor;
 import androidx.media3.session.MediaSession;
 import androidx.media3.ui.AspectRatioFrameLayout;
 import androidx.media3.ui.DefaultTimeBar;
@@ -77,16 +68,12 @@ import com.google.android.gms.cast.framework.CastButtonFactory;
 import com.google.android.gms.cast.framework.CastContext;
 import com.google.android.gms.cast.framework.CastState;
 import com.google.android.gms.cast.framework.CastStateListener;
-import com.google.android.gms.cast.framework.SessionManager;
 import com.google.android.gms.tasks.OnCompleteListener;
 import com.google.android.gms.tasks.Task;
 import com.google.common.collect.ImmutableList;
+import com.squareup.picasso.Picasso;
 import com.google.android.gms.cast.framework.media.RemoteMediaClient;
 
-import java.io.IOException;
-import java.io.InputStream;
-import java.net.HttpURLConnection;
-import java.net.URL;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
@@ -96,13 +83,24 @@ import java.util.Objects;
 import java.util.concurrent.Executor;
 import java.util.concurrent.Executors;
 
+import app.wako.plugins.videoplayer.Components.AudioSwitchMonitor;
+import app.wako.plugins.videoplayer.Components.BufferProfile;
+import app.wako.plugins.videoplayer.Components.CastHandoffManager;
+import app.wako.plugins.videoplayer.Components.CastSessionTeardown;
+import app.wako.plugins.videoplayer.Components.MediaCache;
+import app.wako.plugins.videoplayer.Components.PlayerPool;
+import app.wako.plugins.videoplayer.Components.QoECollector;
+import app.wako.plugins.videoplayer.Components.StartupTracer;
 import app.wako.plugins.videoplayer.Components.SubtitleItem;
 import app.wako.plugins.videoplayer.Components.SubtitleManager;
+import app.wako.plugins.videoplayer.Components.SubtitleRetimer;
+import app.wako.plugins.videoplayer.Components.TimeUpdateEmitter;
 import app.wako.plugins.videoplayer.Notifications.NotificationCenter;
 import app.wako.plugins.videoplayer.Utilities.BrightnessControl;
 import app.wako.plugins.videoplayer.Utilities.HelperUtils;
 import app.wako.plugins.videoplayer.Utilities.SubtitleUtils;
 import app.wako.plugins.videoplayer.Utilities.SystemUiHelper;
+import app.wako.plugins.videoplayer.Utilities.TrackIndex;
 import app.wako.plugins.videoplayer.Utilities.TrackUtils;
 
 /**
@@ -128,6 +126,12 @@ public class FullscreenExoPlayerFragment extends Fragment {
     public String audioTrackId;
     public String audioLocale;
     public long startAtSec;
+    public long cacheSizeMb = MediaCache.DEFAULT_CACHE_SIZE_MB;
+    public String bufferProfile = BufferProfile.AUTO;
+    public long qoeIntervalMs = QoECollector.DEFAULT_INTERVAL_MS;
+    public long timeUpdateIntervalMs = 0;
+    public boolean lazySubtitles = false;
+    public boolean seamlessAudioSwitch = true;
 
     private static final String TAG = FullscreenExoPlayerFragment.class.getName();
 
@@ -139,6 +143,13 @@ public class FullscreenExoPlayerFragment extends Fragment {
     private PlayerView playerView;
     private String videoType = null;
     private static ExoPlayer player;
+    private static PlayerPool.PooledPlayer pooledPlayer;
+    private static QoECollector qoeCollector;
+    private static TimeUpdateEmitter timeUpdateEmitter;
+    private static SubtitleRetimer subtitleRetimer;
+    private static AudioSwitchMonitor audioSwitchMonitor;
+    // Incremented for each video so that late subtitle preparations are ignored
+    private static int playerSessionId;
 
     private Uri videoUri = null;
     private ProgressBar progressBar;
@@ -158,6 +169,8 @@ public class FullscreenExoPlayerFragment extends Fragment {
     private DefaultTrackSelector trackSelector;
 
     private boolean isCasting = false;
+    // The local player listeners are detached while the cast receiver plays
+    private boolean localPlayerListenersDetached = false;
 
     // Double tap gesture detector
     private GestureDetector gestureDetector;
@@ -182,6 +195,18 @@ public class FullscreenExoPlayerFragment extends Fragment {
     private float lastMoveSpeed;
     private long accumulatedSeekMs = 0;
     private float lastY;
+    private int topExclusionZoneBottom;
+    private int bottomExclusionZoneTop;
+    // Latest move of the gesture, applied at the next frame
+    private float pendingGestureX;
+    private float pendingGestureY;
+    private boolean gestureFrameScheduled = false;
+    // The volume set by a gesture is only logged on release
+    private boolean volumeGestureInProgress = false;
+    private final Choreographer.FrameCallback gestureFrameCallback = frameTimeNanos -> {
+        gestureFrameScheduled = false;
+        applyGestureMove(pendingGestureX, pendingGestureY);
+    };
 
     // Thresholds for gesture detection
     private static final float SWIPE_THRESHOLD = 60f;
@@ -211,6 +236,11 @@ public class FullscreenExoPlayerFragment extends Fragment {
     private MediaRouteButton mediaRouteButton;
     private CastContext castContext;
     private CastPlayer castPlayer;
+    private CastSessionTeardown castSessionTeardown;
+    private CastHandoffManager castHandoffManager;
+    private boolean castServiceRequested = false;
+    // Shared by the fragments, the cast context is only created once per process
+    private static final Executor castExecutor = Executors.newSingleThreadExecutor();
     private MediaItem mediaItem;
     private MediaRouter mediaRouter;
     private final MediaRouter.Callback mediaRouterCallback = new EmptyCallback();
@@ -245,6 +275,7 @@ public class FullscreenExoPlayerFragment extends Fragment {
      * @return The View for the fragment's UI
      */
     public View onCreateView(LayoutInflater inflater, ViewGroup container, Bundle savedInstanceState) {
+        StartupTracer.mark(StartupTracer.FRAGMENT_ATTACHED);
         fragmentContext = container.getContext();
         fragmentView = inflater.inflate(R.layout.fragment_fs_exoplayer, container, false);
 
@@ -394,18 +425,26 @@ public class FullscreenExoPlayerFragment extends Fragment {
                     return true;
                 }
 
-                // Get the height of the view for zone calculations
-                int viewHeight = playerView.getHeight();
-                int viewWidth = playerView.getWidth();
-
-                // Define exclusion zones (approximation)
-                int topExclusionZoneHeight = viewHeight / 10; // Top 10% for title area
-                int bottomExclusionZoneHeight = viewHeight / 7; // Bottom ~14% for progress bar area
+                int action = event.getActionMasked();
+                if (action == MotionEvent.ACTION_DOWN) {
+                    // Define exclusion zones (approximation), once per gesture
+                    int viewHeight = playerView.getHeight();
+                    topExclusionZoneBottom = viewHeight / 10; // Top 10% for title area
+                    bottomExclusionZoneTop = viewHeight - viewHeight / 7; // Bottom ~14% for progress bar area
+                } else if (action == MotionEvent.ACTION_UP || action == MotionEvent.ACTION_CANCEL) {
+                    // The last move must be applied before the gesture ends
+                    flushGestureMove();
+                    // Done before the exclusion zones, a swipe can end over the title or the progress bar
+                    if (volumeGestureInProgress) {
+                        volumeGestureInProgress = false;
+                        logVolumeLevel();
+                    }
+                }
 
                 // Check if touch is in exclusion zones
                 float y = event.getY();
-                boolean inTopExclusionZone = y < topExclusionZoneHeight;
-                boolean inBottomExclusionZone = y > (viewHeight - bottomExclusionZoneHeight);
+                boolean inTopExclusionZone = y < topExclusionZoneBottom;
+                boolean inBottomExclusionZone = y > bottomExclusionZoneTop;
 
                 // Ignore gesture controls in exclusion zones
                 if (inTopExclusionZone || inBottomExclusionZone) {
@@ -415,7 +454,7 @@ public class FullscreenExoPlayerFragment extends Fragment {
                 }
 
                 // Handle other gestures
-                switch (event.getActionMasked()) {
+                switch (action) {
                     case MotionEvent.ACTION_DOWN:
                         initialX = event.getX();
                         initialY = event.getY();
@@ -447,164 +486,18 @@ public class FullscreenExoPlayerFragment extends Fragment {
                             return true;
                         }
 
-                        float deltaX = event.getX() - initialX;
-                        float deltaY = event.getY() - initialY;
-                        float currentY = event.getY();
-
-                        // Determine gesture type (horizontal or vertical)
-                        if (!isChangingVolume && !isChangingBrightness && !isChangingPosition) {
-                            if (Math.abs(deltaX) > SWIPE_THRESHOLD && Math.abs(deltaX) > Math.abs(deltaY)) {
-                                // Gesture horizontal - search
-                                isChangingPosition = true;
-                                if (player != null && player.isPlaying()) {
-                                    player.pause();
-                                    restorePlayState = true;
-                                }
-                            } else if (Math.abs(deltaY) > SWIPE_THRESHOLD) {
-                                // Gesture vertical
-                                float screenWidth = playerView.getWidth();
-                                if (initialX < screenWidth / 2) {
-                                    // Left side - Brightness
-                                    isChangingBrightness = true;
-                                    if (mBrightnessControl != null) {
-                                        initialBrightness = mBrightnessControl.getScreenBrightness();
-                                    }
-                                } else {
-                                    // Right side - Volume
-                                    isChangingVolume = true;
-                                }
-                            }
-                        }
-
-                        // Handling position seeking
-                        if (isChangingPosition && player != null) {
-                            // Calculate movement speed (pixels per millisecond)
-                            long currentTime = System.currentTimeMillis();
-                            long timeDelta = currentTime - lastMoveTime;
-                            float distance = event.getX() - lastX;
-
-                            if (timeDelta > 0) {
-                                lastMoveSpeed = Math.abs(distance) / timeDelta;
-                            }
-
-                            // Base seek amount for this movement (3000ms per 10% of screen width)
-                            float baseSeekAmount = (Math.abs(distance) / playerView.getWidth()) * 30000;
-
-                            // Speed multiplier: 1.0 for normal speed, up to 6.0 for very fast swipes
-                            float speedMultiplier = Math.min(1 + (lastMoveSpeed * 3), 6.0f);
-
-                            // Calculate seek change for this movement
-                            long seekChangeForThisMove = (long) (baseSeekAmount * speedMultiplier);
-
-                            // Add or subtract from accumulated seek based on direction
-                            accumulatedSeekMs += distance > 0 ? seekChangeForThisMove : -seekChangeForThisMove;
-
-                            // Calculate new position based on initial position and accumulated seek
-                            long newPosition = Math.max(0, Math.min(totalDuration, initialPosition + accumulatedSeekMs));
-
-                            // Calculate time difference from initial position
-                            long timeDifference = newPosition - initialPosition;
-
-                            // Update tracking variables
-                            lastX = event.getX();
-                            lastMoveTime = currentTime;
-
-                            // Display indicator with rounded background
-                            seekIndicator.setVisibility(View.VISIBLE);
-                            seekIndicator.setBackgroundResource(R.drawable.rounded_black_background);
-
-                            // Determine prefix (+ or -) based on direction
-                            String prefix = timeDifference >= 0 ? "+" : "-";
-
-                            // Format absolute time difference as "00:00"
-                            String formattedDifference = formatTime(Math.abs(timeDifference));
-
-                            // Display in "+00:00" or "-00:00" format
-                            seekIndicator.setText(prefix + formattedDifference);
-
-                            // Apply seek
-                            player.seekTo(newPosition);
-                        }
-
-                        // Brightness management
-                        if (isChangingBrightness && mBrightnessControl != null) {
-                            // Calculate brightness adjustment based on vertical movement with reduced sensitivity
-                            float brightnessChange = -deltaY / (playerView.getHeight()); // Reduced sensitivity
-                            float newBrightness;
-
-                            // If we are near the bottom of the screen and lowering brightness
-                            if (initialBrightness <= 0.01f && brightnessChange < 0) {
-                                // Switch to auto mode
-                                newBrightness = WindowManager.LayoutParams.BRIGHTNESS_OVERRIDE_NONE;
-                                isAutoBrightness = true;
-                                brightnessIndicator.setCompoundDrawablesWithIntrinsicBounds(getResources().getDrawable(R.drawable.ic_brightness_auto_24dp), null, null, null);
-                                brightnessIndicator.setText("Auto");
-                            } else {
-                                // Otherwise, adjust brightness normally
-                                isAutoBrightness = false;
-                                newBrightness = Math.min(Math.max(initialBrightness + brightnessChange, 0.01f), 1f);
-                                int brightnessPercentage = (int) (newBrightness * 100);
-                                brightnessIndicator.setCompoundDrawablesWithIntrinsicBounds(getResources().getDrawable(R.drawable.ic_brightness_medium_24), null, null, null);
-                                brightnessIndicator.setText(brightnessPercentage + "%");
-                            }
-
-                            // Apply brightness
-                            mBrightnessControl.setScreenBrightness(newBrightness);
-
-                            // Apply rounded background and show indicator
-                            brightnessIndicator.setBackgroundResource(R.drawable.rounded_black_background);
-                            brightnessIndicator.setVisibility(View.VISIBLE);
-                        }
-
-                        // Handling volume
+                        detectGestureType(event.getX(), event.getY());
                         if (isChangingVolume) {
-                            // Determine if volume is increasing or decreasing based on movement since last position
-                            boolean isIncreasing = currentY < lastY;  // Moving up increases volume
-
-                            // Calculate base volume change with fixed sensitivity
-                            float baseVolumeChange = Math.abs(currentY - lastY) / VOLUME_CHANGE_FACTOR;
-
-                            // Get current volume level
-                            float systemVolume = mAudioManager.getStreamVolume(AudioManager.STREAM_MUSIC);
-                            float maxVolume = mAudioManager.getStreamMaxVolume(AudioManager.STREAM_MUSIC);
-                            float currentVolumeNormalized = systemVolume / maxVolume;
-
-                            // Apply progressive sensitivity reduction for high volumes
-                            float volumeChange;
-                            if (currentVolumeNormalized >= 0.9f) {
-                                volumeChange = baseVolumeChange * 0.05f;  // 95% reduction
-                            } else if (currentVolumeNormalized >= 0.8f) {
-                                volumeChange = baseVolumeChange * 0.1f;   // 90% reduction
-                            } else if (currentVolumeNormalized >= 0.7f) {
-                                volumeChange = baseVolumeChange * 0.2f;   // 80% reduction
-                            } else if (currentVolumeNormalized >= 0.5f) {
-                                volumeChange = baseVolumeChange * 0.4f;   // 60% reduction
-                            } else {
-                                volumeChange = baseVolumeChange * 0.6f;   // 40% base reduction
-                            }
-
-                            // Apply the volume change in the correct direction
-                            float newVolume = currentVolumeNormalized + (isIncreasing ? volumeChange : -volumeChange);
-
-                            // Calculate and apply the new volume in steps
-                            setVolumeLevel(newVolume, isIncreasing);
-
-                            // Update last Y position
-                            lastY = currentY;
-
-                            // Display volume indicator
-                            volumeIndicator.setVisibility(View.VISIBLE);
-                            volumeIndicator.setBackgroundResource(R.drawable.rounded_black_background);
+                            // Every move changes the volume level, which is applied at the next frame
+                            updateVolumeForMove(event.getY());
+                        }
 
-                            if (currentVolumePercent == 0) {
-                                // Volume at 0%
-                                volumeIndicator.setCompoundDrawablesWithIntrinsicBounds(getResources().getDrawable(R.drawable.ic_volume_off_24dp), null, null, null);
-                                volumeIndicator.setText("0%");
-                            } else {
-                                // Normal volume
-                                volumeIndicator.setCompoundDrawablesWithIntrinsicBounds(getResources().getDrawable(R.drawable.ic_volume_up_24dp), null, null, null);
-                                volumeIndicator.setText(currentVolumePercent + "%");
-                            }
+                        // Only the latest position of each frame is applied
+                        pendingGestureX = event.getX();
+                        pendingGestureY = event.getY();
+                        if (!gestureFrameScheduled) {
+                            gestureFrameScheduled = true;
+                            Choreographer.getInstance().postFrameCallback(gestureFrameCallback);
                         }
 
                         return true;
@@ -700,11 +593,9 @@ public class FullscreenExoPlayerFragment extends Fragment {
 
 
         Log.v(TAG, "isChromecastEnabled: " + isChromecastEnabled);
-        if (!isChromecastEnabled) {
-            mediaRouteButton.setVisibility(View.GONE);
-        } else {
-            initializeCastService();
-        }
+        // Cast services are initialized once local playback is ready, Google Play services
+        // must not compete with the first segments
+        mediaRouteButton.setVisibility(View.GONE);
 
         Log.v(TAG, "title: " + videoTitle);
         if (!Objects.equals(videoTitle, "")) {
@@ -798,44 +689,228 @@ public class FullscreenExoPlayerFragment extends Fragment {
 
 
     /**
-     * Inner class for asynchronously loading and setting the cast image.
-     * Downloads the poster image from a URL and displays it in the cast image view.
+     * Loads the poster into the cast image view.
+     * Picasso shares its memory and disk caches and its connections between sessions, and the
+     * poster is decoded at the size of the view in RGB_565 instead of at full resolution.
      */
-    private class setCastImage extends AsyncTask<Void, Void, Bitmap> {
-        /**
-         * Performs the image download operation in a background thread.
-         *
-         * @param params Not used in this implementation
-         * @return The downloaded Bitmap or null if download failed
-         */
-        protected Bitmap doInBackground(Void... params) {
-            final String image = posterUrl;
-            if (image != "") {
-                try {
-                    URL url = new URL(image);
-                    HttpURLConnection connection = (HttpURLConnection) url.openConnection();
-                    connection.setDoInput(true);
-                    connection.connect();
-                    InputStream input = connection.getInputStream();
-                    Bitmap myBitmap = BitmapFactory.decodeStream(input);
-                    return myBitmap;
-                } catch (IOException e) {
-                    e.printStackTrace();
-                    return null;
+    private void loadCastImage() {
+        if (castImage == null || posterUrl == null || posterUrl.isEmpty()) {
+            return;
+        }
+        Picasso.get()
+                .load(posterUrl)
+                .config(Bitmap.Config.RGB_565)
+                .fit()
+                .centerInside()
+                .onlyScaleDown()
+                .into(castImage);
+    }
+
+    /**
+     * Applies the latest pending move of a gesture now instead of at the next frame.
+     */
+    private void flushGestureMove() {
+        if (!gestureFrameScheduled) {
+            return;
+        }
+        gestureFrameScheduled = false;
+        Choreographer.getInstance().removeFrameCallback(gestureFrameCallback);
+        applyGestureMove(pendingGestureX, pendingGestureY);
+    }
+
+    /**
+     * Determines the type of a gesture from its distance to the touch down, once it is far enough.
+     *
+     * @param x The x coordinate of the move
+     * @param y The y coordinate of the move
+     */
+    private void detectGestureType(float x, float y) {
+        float deltaX = x - initialX;
+        float deltaY = y - initialY;
+
+        // Determine gesture type (horizontal or vertical)
+        if (!isChangingVolume && !isChangingBrightness && !isChangingPosition) {
+            if (Math.abs(deltaX) > SWIPE_THRESHOLD && Math.abs(deltaX) > Math.abs(deltaY)) {
+                // Gesture horizontal - search
+                isChangingPosition = true;
+                if (player != null && player.isPlaying()) {
+                    player.pause();
+                    restorePlayState = true;
+                }
+            } else if (Math.abs(deltaY) > SWIPE_THRESHOLD) {
+                // Gesture vertical
+                float screenWidth = playerView.getWidth();
+                if (initialX < screenWidth / 2) {
+                    // Left side - Brightness
+                    isChangingBrightness = true;
+                    if (mBrightnessControl != null) {
+                        initialBrightness = mBrightnessControl.getScreenBrightness();
+                    }
+                } else {
+                    // Right side - Volume
+                    isChangingVolume = true;
                 }
+            }
+        }
+    }
+
+    /**
+     * Changes the volume level for a move of a volume gesture, as each move did before the
+     * gestures were applied per frame. Only the level is computed here, the system volume is
+     * set by applyGestureMove.
+     *
+     * @param currentY The y coordinate of the move
+     */
+    private void updateVolumeForMove(float currentY) {
+        if (isTvDevice || mAudioManager == null) {
+            return;
+        }
+
+        // Determine if volume is increasing or decreasing based on movement since last position
+        boolean isIncreasing = currentY < lastY;  // Moving up increases volume
+
+        // Calculate base volume change with fixed sensitivity
+        float baseVolumeChange = Math.abs(currentY - lastY) / VOLUME_CHANGE_FACTOR;
+
+        // Get current volume level, the one set by the gesture since the system volume is only set at the next frame
+        float currentVolumeNormalized = currentVolumePercent / 100f;
+
+        // Apply progressive sensitivity reduction for high volumes
+        float volumeChange;
+        if (currentVolumeNormalized >= 0.9f) {
+            volumeChange = baseVolumeChange * 0.05f;  // 95% reduction
+        } else if (currentVolumeNormalized >= 0.8f) {
+            volumeChange = baseVolumeChange * 0.1f;   // 90% reduction
+        } else if (currentVolumeNormalized >= 0.7f) {
+            volumeChange = baseVolumeChange * 0.2f;   // 80% reduction
+        } else if (currentVolumeNormalized >= 0.5f) {
+            volumeChange = baseVolumeChange * 0.4f;   // 60% reduction
+        } else {
+            volumeChange = baseVolumeChange * 0.6f;   // 40% base reduction
+        }
+
+        // Apply the volume change in the correct direction
+        float newVolume = currentVolumeNormalized + (isIncreasing ? volumeChange : -volumeChange);
+
+        // Calculate the new volume in steps
+        volumeGestureInProgress = true;
+        updateVolumePercent(newVolume, isIncreasing);
+
+        // Update last Y position
+        lastY = currentY;
+    }
+
+    /**
+     * Seeks or changes the brightness for the latest move of a gesture, and sets the volume
+     * level reached by its moves. Called at most once per frame, touch panels can report
+     * moves at several times the frame rate.
+     *
+     * @param x The x coordinate of the latest move
+     * @param y The y coordinate of the latest move
+     */
+    private void applyGestureMove(float x, float y) {
+        float deltaY = y - initialY;
+
+        // Handling position seeking
+        if (isChangingPosition && player != null) {
+            // Calculate movement speed (pixels per millisecond)
+            long currentTime = System.currentTimeMillis();
+            long timeDelta = currentTime - lastMoveTime;
+            float distance = x - lastX;
+
+            if (timeDelta > 0) {
+                lastMoveSpeed = Math.abs(distance) / timeDelta;
+            }
+
+            // Base seek amount for this movement (3000ms per 10% of screen width)
+            float baseSeekAmount = (Math.abs(distance) / playerView.getWidth()) * 30000;
+
+            // Speed multiplier: 1.0 for normal speed, up to 6.0 for very fast swipes
+            float speedMultiplier = Math.min(1 + (lastMoveSpeed * 3), 6.0f);
+
+            // Calculate seek change for this movement
+            long seekChangeForThisMove = (long) (baseSeekAmount * speedMultiplier);
+
+            // Add or subtract from accumulated seek based on direction
+            accumulatedSeekMs += distance > 0 ? seekChangeForThisMove : -seekChangeForThisMove;
+
+            // Calculate new position based on initial position and accumulated seek
+            long newPosition = Math.max(0, Math.min(totalDuration, initialPosition + accumulatedSeekMs));
+
+            // Calculate time difference from initial position
+            long timeDifference = newPosition - initialPosition;
+
+            // Update tracking variables
+            lastX = x;
+            lastMoveTime = currentTime;
+
+            // Display indicator with rounded background
+            seekIndicator.setVisibility(View.VISIBLE);
+            seekIndicator.setBackgroundResource(R.drawable.rounded_black_background);
+
+            // Determine prefix (+ or -) based on direction
+            String prefix = timeDifference >= 0 ? "+" : "-";
+
+            // Format absolute time difference as "00:00"
+            String formattedDifference = formatTime(Math.abs(timeDifference));
+
+            // Display in "+00:00" or "-00:00" format
+            seekIndicator.setText(prefix + formattedDifference);
+
+            // Apply seek
+            player.seekTo(newPosition);
+        }
+
+        // Brightness management
+        if (isChangingBrightness && mBrightnessControl != null) {
+            // Calculate brightness adjustment based on vertical movement with reduced sensitivity
+            float brightnessChange = -deltaY / (playerView.getHeight()); // Reduced sensitivity
+            float newBrightness;
+
+            // If we are near the bottom of the screen and lowering brightness
+            if (initialBrightness <= 0.01f && brightnessChange < 0) {
+                // Switch to auto mode
+                newBrightness = WindowManager.LayoutParams.BRIGHTNESS_OVERRIDE_NONE;
+                isAutoBrightness = true;
+                brightnessIndicator.setCompoundDrawablesWithIntrinsicBounds(getResources().getDrawable(R.drawable.ic_brightness_auto_24dp), null, null, null);
+                brightnessIndicator.setText("Auto");
             } else {
-                return null;
+                // Otherwise, adjust brightness normally
+                isAutoBrightness = false;
+                newBrightness = Math.min(Math.max(initialBrightness + brightnessChange, 0.01f), 1f);
+                int brightnessPercentage = (int) (newBrightness * 100);
+                brightnessIndicator.setCompoundDrawablesWithIntrinsicBounds(getResources().getDrawable(R.drawable.ic_brightness_medium_24), null, null, null);
+                brightnessIndicator.setText(brightnessPercentage + "%");
             }
+
+            // Apply brightness
+            mBrightnessControl.setScreenBrightness(newBrightness);
+
+            // Apply rounded background and show indicator
+            brightnessIndicator.setBackgroundResource(R.drawable.rounded_black_background);
+            brightnessIndicator.setVisibility(View.VISIBLE);
         }
 
-        /**
-         * Updates the UI with the downloaded image.
-         *
-         * @param result The downloaded Bitmap
-         */
-        @Override
-        protected void onPostExecute(Bitmap result) {
-            castImage.setImageBitmap(result);
+        // Handling volume
+        if (isChangingVolume) {
+            // Set the level reached by the moves of this frame
+            if (!isTvDevice && mAudioManager != null) {
+                applyVolumePercent();
+            }
+
+            // Display volume indicator
+            volumeIndicator.setVisibility(View.VISIBLE);
+            volumeIndicator.setBackgroundResource(R.drawable.rounded_black_background);
+
+            if (currentVolumePercent == 0) {
+                // Volume at 0%
+                volumeIndicator.setCompoundDrawablesWithIntrinsicBounds(getResources().getDrawable(R.drawable.ic_volume_off_24dp), null, null, null);
+                volumeIndicator.setText("0%");
+            } else {
+                // Normal volume
+                volumeIndicator.setCompoundDrawablesWithIntrinsicBounds(getResources().getDrawable(R.drawable.ic_volume_up_24dp), null, null, null);
+                volumeIndicator.setText(currentVolumePercent + "%");
+            }
         }
     }
 
@@ -939,6 +1014,12 @@ public class FullscreenExoPlayerFragment extends Fragment {
             }
         }
 
+        // Final QoE summary of the session, read before the player goes back to the pool
+        if (player != null && qoeCollector != null) {
+            qoeCollector.detach(player);
+            info.put("qoe", qoeCollector.getSnapshot());
+        }
+
         releasePlayer();
         /* 
     Activity mAct = getActivity();
@@ -1000,11 +1081,21 @@ public class FullscreenExoPlayerFragment extends Fragment {
 
         // Clean up casting resources
         if (isChromecastEnabled) {
+            if (castSessionTeardown != null) {
+                castSessionTeardown.cancel();
+                castSessionTeardown = null;
+            }
+
             // Remove callbacks
             if (mediaRouter != null) {
                 mediaRouter.removeCallback(mediaRouterCallback);
             }
 
+            if (castHandoffManager != null) {
+                castHandoffManager.release();
+                castHandoffManager = null;
+            }
+
             // Release CastPlayer
             if (castPlayer != null) {
                 try {
@@ -1027,6 +1118,13 @@ public class FullscreenExoPlayerFragment extends Fragment {
             }
         }
 
+        if (castImage != null) {
+            Picasso.get().cancelRequest(castImage);
+        }
+
+        Choreographer.getInstance().removeFrameCallback(gestureFrameCallback);
+        gestureFrameScheduled = false;
+
         releasePlayer();
         NotificationCenter.defaultCenter().removeAllNotifications();
     }
@@ -1038,7 +1136,7 @@ public class FullscreenExoPlayerFragment extends Fragment {
     @Override
     public void onPause() {
         super.onPause();
-        if (isChromecastEnabled) castContext.removeCastStateListener(castStateListener);
+        if (isChromecastEnabled && castContext != null && castStateListener != null) castContext.removeCastStateListener(castStateListener);
 
         // Save the volume and brightness state if the application is paused
         if (mAudioManager != null) {
@@ -1063,15 +1161,46 @@ public class FullscreenExoPlayerFragment extends Fragment {
      */
     public void releasePlayer() {
         if (player != null) {
-            player.release();
-            player = null;
-            trackSelector = null;
-
             if (mediaSession != null) {
                 mediaSession.release();
                 mediaSession = null;
             }
 
+            // Detach the player from this fragment before handing it back to the pool
+            if (playerListener != null) {
+                player.removeListener(playerListener);
+            }
+            localPlayerListenersDetached = false;
+            player.removeAnalyticsListener(StartupTracer.getAnalyticsListener());
+            if (qoeCollector != null) {
+                qoeCollector.detach(player);
+                qoeCollector = null;
+            }
+            if (audioSwitchMonitor != null) {
+                audioSwitchMonitor.cancel();
+                player.removeAnalyticsListener(audioSwitchMonitor);
+                audioSwitchMonitor = null;
+            }
+            // A pooled player must not start its next video with the pin of an unfinished switch
+            TrackUtils.unpinVideoSelection(trackSelector);
+            if (timeUpdateEmitter != null) {
+                timeUpdateEmitter.stop();
+                timeUpdateEmitter = null;
+            }
+            if (subtitleRetimer != null) {
+                subtitleRetimer.stop();
+                subtitleRetimer = null;
+            }
+            if (playerView != null && playerView.getPlayer() == player) {
+                playerView.setPlayer(null);
+            }
+            playerSessionId++;
+            TrackIndex.clear();
+            PlayerPool.recycle(pooledPlayer);
+            pooledPlayer = null;
+            player = null;
+            trackSelector = null;
+
             videoType = null;
             videoUri = null;
             subtitles.clear();
@@ -1139,21 +1268,25 @@ public class FullscreenExoPlayerFragment extends Fragment {
      * Prepares the player for playback with the specified video and subtitle content.
      */
     private void initializePlayer() {
-        // Check if there is an active casting session and stop it
-        if (isChromecastEnabled) {
+        StartupTracer.mark(StartupTracer.INITIALIZE_PLAYER_BEGIN);
+        Trace.beginSection("wako:initializePlayer");
+        try {
+            initializePlayerInternal();
+        } finally {
+            Trace.endSection();
+        }
+        StartupTracer.mark(StartupTracer.INITIALIZE_PLAYER_END);
+    }
+
+    private void initializePlayerInternal() {
+        // End the cast session of a previous video, if any, without waiting for it: the local
+        // player is built meanwhile and the cast listeners are only set once it has ended
+        if (isChromecastEnabled && (castSessionTeardown == null || castSessionTeardown.isEnded())) {
             try {
-                CastContext castCtx = CastContext.getSharedInstance();
-                SessionManager sessionManager = castCtx.getSessionManager();
-                if (sessionManager.getCurrentCastSession() != null) {
-                    Log.d(TAG, "Detected active cast session, ending it for new video");
-                    // Stop current session so new video takes over
-                    sessionManager.endCurrentSession(true);
-                    // Wait a short moment to ensure the session is ended
-                    try {
-                        Thread.sleep(100);
-                    } catch (InterruptedException e) {
-                        Log.e(TAG, "Sleep interrupted", e);
-                    }
+                // Only initialized when a previous video used it, so there is no session otherwise
+                CastContext sharedCastContext = CastContext.getSharedInstance();
+                if (sharedCastContext != null) {
+                    castSessionTeardown = CastSessionTeardown.start(sharedCastContext.getSessionManager());
                 }
             } catch (Exception e) {
                 Log.e(TAG, "Error checking/ending cast session", e);
@@ -1168,30 +1301,19 @@ public class FullscreenExoPlayerFragment extends Fragment {
         long initialPosition = startAtSec > 0 ? startAtSec * 1000 : 0;
         Log.d(TAG, "Requested initial position: " + initialPosition + "ms (startAtSec=" + startAtSec + ")");
 
-        // Enable audio libs
-        DefaultExtractorsFactory extractorsFactory = new DefaultExtractorsFactory().setTsExtractorFlags(DefaultTsPayloadReaderFactory.FLAG_ENABLE_HDMV_DTS_AUDIO_STREAMS).setTsExtractorTimestampSearchBytes(1500 * TsExtractor.TS_PACKET_SIZE);
-
-        @SuppressLint("WrongConstant") RenderersFactory renderersFactory = new DefaultRenderersFactory(fragmentContext).setExtensionRendererMode(DefaultRenderersFactory.EXTENSION_RENDERER_MODE_ON);
-
-        DefaultBandwidthMeter bandwidthMeter = new DefaultBandwidthMeter.Builder(fragmentContext).build();
-        AdaptiveTrackSelection.Factory videoTrackSelectionFactory = new AdaptiveTrackSelection.Factory();
-
-        trackSelector = new DefaultTrackSelector(fragmentContext, videoTrackSelectionFactory);
-
-        trackSelector.setParameters(
-                trackSelector.buildUponParameters()
-                        .setIgnoredTextSelectionFlags(C.SELECTION_FLAG_DEFAULT | C.SELECTION_FLAG_FORCED)
-        );
+        // Take over the player prepared by preload() when it holds this video, otherwise
+        // reuse a warm player when one is available, only the MediaItem changes between videos
+        pooledPlayer = PlayerPool.acquirePreloaded(PlayerPool.buildPreloadKey(videoUrl, subtitles));
+        boolean isPreloaded = pooledPlayer != null;
+        StartupTracer.setPreloaded(isPreloaded);
+        if (!isPreloaded) {
+            pooledPlayer = PlayerPool.acquire(fragmentContext, cacheSizeMb, bufferProfile);
+        }
+        player = pooledPlayer.player;
+        trackSelector = pooledPlayer.trackSelector;
 
         playerListener = new PlayerListener();
 
-        LoadControl loadControl = new DefaultLoadControl();
-
-        player = new ExoPlayer.Builder(fragmentContext, renderersFactory).setSeekBackIncrementMs(10000).setSeekForwardIncrementMs(10000).setTrackSelector(trackSelector)
-                .setLoadControl(loadControl)
-                .setBandwidthMeter(bandwidthMeter)
-                .setMediaSourceFactory(new DefaultMediaSourceFactory(fragmentContext, extractorsFactory)).build();
-
         // Set volume immediately after creation, but only if not on TV
         if (!isTvDevice && mAudioManager != null) {
             float normalizedVolume = initialSystemVolume / systemMaxVolume;
@@ -1204,8 +1326,37 @@ public class FullscreenExoPlayerFragment extends Fragment {
         mediaSession = new MediaSession.Builder(fragmentContext, player).build();
 
         player.addListener(playerListener);
+        player.addAnalyticsListener(StartupTracer.getAnalyticsListener());
+        qoeCollector = new QoECollector(qoeIntervalMs);
+        qoeCollector.attach(player);
+        audioSwitchMonitor = new AudioSwitchMonitor(new AudioSwitchMonitor.Listener() {
+            @Override
+            public void onAudioSwitched(Format format, long latencyMs, boolean rebuffered, boolean videoKept) {
+                TrackUtils.unpinVideoSelection(trackSelector);
+                if (player == null) {
+                    return;
+                }
+                Map<String, Object> switchInfo = new HashMap<>();
+                switchInfo.put("audioSwitchLatencyMs", latencyMs);
+                switchInfo.put("audioSwitchRebuffered", rebuffered);
+                switchInfo.put("audioSwitchVideoKept", videoKept);
+                TrackUtils.onTracksChanged(subtitleManager, player.getCurrentTracks(), switchInfo);
+            }
+
+            @Override
+            public void onAudioSwitchAbandoned() {
+                TrackUtils.unpinVideoSelection(trackSelector);
+            }
+        });
+        player.addAnalyticsListener(audioSwitchMonitor);
+        if (timeUpdateIntervalMs > 0) {
+            timeUpdateEmitter = new TimeUpdateEmitter(player, timeUpdateIntervalMs);
+            timeUpdateEmitter.start();
+        }
 
         playerView.setPlayer(player);
+        subtitleRetimer = new SubtitleRetimer(player, pooledPlayer.textOutput);
+        subtitleRetimer.start();
 
         AudioAttributes audioAttributes = new AudioAttributes.Builder()
                 .setUsage(C.USAGE_MEDIA)
@@ -1224,19 +1375,51 @@ public class FullscreenExoPlayerFragment extends Fragment {
 
         this.subtitleManager.setTrackSelector(trackSelector);
         this.subtitleManager.setPlayer(player);
-        this.subtitleManager.loadExternalSubtitles(subtitles, mediaItemBuilder);
+        this.subtitleManager.setDataSourceFactory(pooledPlayer.dataSourceFactory);
 
         player.setRepeatMode(Player.REPEAT_MODE_OFF);
 
-        MediaItem mediaItem = mediaItemBuilder.build();
+        if (isPreloaded) {
+            // The media item is already prepared, only move to the requested position if it changed
+            if (Math.abs(player.getCurrentPosition() - initialPosition) > 1000) {
+                player.seekTo(initialPosition);
+            }
+            // preload() attaches every subtitle that could be prepared
+            MediaItem preloadedMediaItem = player.getCurrentMediaItem();
+            this.subtitleManager.setExternalSubtitles(subtitles, preloadedMediaItem != null && preloadedMediaItem.localConfiguration != null
+                    ? preloadedMediaItem.localConfiguration.subtitleConfigurations
+                    : new ArrayList<>());
+        } else {
+            // Subtitles are prepared in the background, the player is prepared once they are ready
+            final int sessionId = ++playerSessionId;
+            final long startPositionMs = initialPosition;
+            this.subtitleManager.loadExternalSubtitles(subtitles, mediaItemBuilder, lazySubtitles, subtitleTrackId, subtitleLocale, () -> {
+                if (player == null || sessionId != playerSessionId) {
+                    // The player was released or given another video meanwhile
+                    return;
+                }
+                MediaItem mediaItem = mediaItemBuilder.build();
 
-        // Use the saved initial position
-        player.setMediaItem(mediaItem, initialPosition);
+                // Use the saved initial position
+                player.setMediaItem(mediaItem, startPositionMs);
 
-        player.prepare();
+                player.prepare();
+            });
+        }
 
         player.setPlayWhenReady(true);
 
+        if (isPreloaded) {
+            // The tracks were selected and buffered while preloading, before this listener was
+            // added. A player that already reached READY does not report it again, the listener
+            // gets that state here, otherwise the real transition to READY reaches it later
+            playerListener.onTracksChanged(player.getCurrentTracks());
+            if (player.getPlaybackState() == Player.STATE_READY) {
+                playerListener.onPlaybackStateChanged(Player.STATE_READY);
+                StartupTracer.mark(StartupTracer.STATE_READY);
+            }
+        }
+
         ImmutableList<Tracks.Group> trackGroups = player.getCurrentTracks().getGroups();
         for (int i = 0; i < trackGroups.size(); i++) {
             Tracks.Group group = trackGroups.get(i);
@@ -1315,10 +1498,15 @@ public class FullscreenExoPlayerFragment extends Fragment {
 
                     if (!firstReadyCalled) {
                         firstReadyCalled = true;
+                        if (pooledPlayer != null) {
+                            info.put("bandwidthEstimate", pooledPlayer.bandwidthMeter.getBitrateEstimate());
+                            info.put("storedBandwidthEstimate", pooledPlayer.storedBitrateEstimate);
+                        }
                         NotificationCenter.defaultCenter().postNotification("playerStateReady", info);
                         TrackUtils.selectTracksOldWay(player, trackSelector, subtitleTrackId, subtitleLocale, audioTrackId, audioLocale, preferredLocale);
 
                         setSubtitleTextSize();
+                        initializeCastServiceIfNeeded();
                     }
 
                     subtitleManager.refreshSubtitleButton();
@@ -1407,6 +1595,8 @@ public class FullscreenExoPlayerFragment extends Fragment {
          */
         @Override
         public void onTracksChanged(Tracks tracks) {
+            subtitleManager.applyPendingSubtitle(tracks);
+            subtitleManager.prewarmTrackNames(tracks);
             // Restore TrackUtils call
             TrackUtils.onTracksChanged(subtitleManager, tracks);
 
@@ -1719,6 +1909,120 @@ public class FullscreenExoPlayerFragment extends Fragment {
         return isMuted;
     }
 
+    /**
+     * Selects the audio and subtitle tracks by id and/or language, empty values are ignored.
+     *
+     * @param subtitleTrackId The id of the subtitle track
+     * @param subtitleLocale  The language of the subtitle track
+     * @param audioTrackId    The id of the audio track
+     * @param audioLocale     The language of the audio track
+     */
+    public void selectTracks(String subtitleTrackId, String subtitleLocale, String audioTrackId, String audioLocale) {
+        boolean audioRequested = !audioTrackId.isEmpty() || !audioLocale.isEmpty();
+        Tracks.Group audioGroup = null;
+        if (audioRequested && seamlessAudioSwitch && firstReadyCalled) {
+            // Audio and subtitles are applied by a single track selection keeping the video, the group switched to is measured
+            audioGroup = TrackUtils.switchAudioTrack(player, trackSelector, subtitleTrackId, subtitleLocale, audioTrackId, audioLocale);
+        }
+        if (audioGroup != null) {
+            if (audioSwitchMonitor != null) {
+                audioSwitchMonitor.begin(audioGroup.getMediaTrackGroup());
+            }
+        } else {
+            TrackUtils.selectTracksOldWay(player, trackSelector, subtitleTrackId, subtitleLocale, audioTrackId, audioLocale, preferredLocale);
+        }
+        subtitleManager.refreshSubtitleButton();
+    }
+
+    /**
+     * Selects an external subtitle, loading it first when lazySubtitles left it out of the media item.
+     *
+     * @param url The url of the subtitle
+     * @return false if the url is not one of the subtitles of the video
+     */
+    public boolean selectExternalSubtitle(String url) {
+        return subtitleManager.selectExternalSubtitle(url);
+    }
+
+    /**
+     * Shifts the external subtitle being displayed, applied at once to the visible cue.
+     *
+     * @param offsetMs Delay in ms, negative to show the subtitles earlier
+     */
+    public void setSubtitleOffset(long offsetMs) {
+        if (subtitleRetimer != null) {
+            subtitleRetimer.setOffsetMs(offsetMs);
+        }
+    }
+
+    /**
+     * Stretches the timing of the external subtitle being displayed, e.g. for a file made
+     * for another frame rate.
+     *
+     * @param rate Factor applied to the cue times
+     * @return The rate applied, 1 if there is no player
+     */
+    public float setSubtitleRate(float rate) {
+        return subtitleRetimer != null ? subtitleRetimer.setRate(rate) : 1f;
+    }
+
+    /**
+     * Reads the whole player state at once, so that the values are consistent with each other.
+     * Must be called on the application looper of the player.
+     *
+     * @return The state, times in seconds
+     */
+    public Map<String, Object> getState() {
+        Map<String, Object> state = new HashMap<>();
+        state.put("isCasting", isCasting);
+        if (player == null) {
+            state.put("playbackState", "idle");
+            return state;
+        }
+        long durationMs = player.getDuration();
+        state.put("isPlaying", player.isPlaying());
+        state.put("currentTime", player.getCurrentPosition() / 1000d);
+        state.put("bufferedTime", player.getBufferedPosition() / 1000d);
+        state.put("duration", durationMs == C.TIME_UNSET ? 0d : durationMs / 1000d);
+        state.put("volume", getVolume());
+        state.put("muted", isMuted);
+        state.put("rate", playbackRate);
+        state.put("isLive", player.isCurrentMediaItemLive());
+
+        String playbackState;
+        switch (player.getPlaybackState()) {
+            case Player.STATE_BUFFERING:
+                playbackState = "buffering";
+                break;
+            case Player.STATE_READY:
+                playbackState = "ready";
+                break;
+            case Player.STATE_ENDED:
+                playbackState = "ended";
+                break;
+            default:
+                playbackState = "idle";
+                break;
+        }
+        state.put("playbackState", playbackState);
+        state.put("externalSubtitles", subtitleManager.getExternalSubtitles());
+        if (subtitleRetimer != null) {
+            state.put("subtitleOffsetMs", subtitleRetimer.getOffsetMs());
+            state.put("subtitleRate", subtitleRetimer.getRate());
+        }
+
+        TrackIndex trackIndex = TrackIndex.of(player);
+        Format audioFormat = trackIndex.getSelectedFormat(C.TRACK_TYPE_AUDIO);
+        if (audioFormat != null) {
+            state.put("audioTrackId", audioFormat.id);
+        }
+        Format subtitleFormat = trackIndex.getSelectedFormat(C.TRACK_TYPE_TEXT);
+        if (subtitleFormat != null) {
+            state.put("subtitleTrackId", subtitleFormat.id);
+        }
+        return state;
+    }
+
     /**
      * Sets the media route button color to white.
      * Used for Chromecast integration UI.
@@ -1738,6 +2042,17 @@ public class FullscreenExoPlayerFragment extends Fragment {
     }
 
 
+    /**
+     * Initializes the Chromecast service the first time it is needed.
+     */
+    private void initializeCastServiceIfNeeded() {
+        if (!isChromecastEnabled || castServiceRequested) {
+            return;
+        }
+        castServiceRequested = true;
+        initializeCastService();
+    }
+
     /**
      * Initializes the Chromecast service.
      * Sets up the CastContext and prepares for casting sessions.
@@ -1748,8 +2063,7 @@ public class FullscreenExoPlayerFragment extends Fragment {
             return;
         }
 
-        Executor executor = Executors.newSingleThreadExecutor();
-        Task<CastContext> task = CastContext.getSharedInstance(fragmentContext, executor);
+        Task<CastContext> task = CastContext.getSharedInstance(fragmentContext, castExecutor);
 
         task.addOnCompleteListener(new OnCompleteListener<CastContext>() {
             @Override
@@ -1792,37 +2106,13 @@ public class FullscreenExoPlayerFragment extends Fragment {
                             }
                         };
 
-                        // Prepare metadata for casting
-                        MediaMetadata movieMetadata;
-                        if (posterUrl != null && !posterUrl.isEmpty()) {
-                            movieMetadata = new MediaMetadata.Builder()
-                                    .setTitle(videoTitle != null ? videoTitle : "")
-                                    .setSubtitle(videoSubtitle != null ? videoSubtitle : "")
-                                    .setMediaType(MediaMetadata.MEDIA_TYPE_MOVIE)
-                                    .setArtworkUri(Uri.parse(posterUrl))
-                                    .build();
-                            new setCastImage().execute();
+                        // Set up session listeners once the session of a previous video has ended
+                        if (castSessionTeardown != null) {
+                            castSessionTeardown.runWhenEnded(() -> setupCastSessionListeners());
                         } else {
-                            movieMetadata = new MediaMetadata.Builder()
-                                    .setTitle(videoTitle != null ? videoTitle : "")
-                                    .setSubtitle(videoSubtitle != null ? videoSubtitle : "")
-                                    .build();
+                            setupCastSessionListeners();
                         }
 
-                        // Check if video URL is valid
-                        if (videoUrl != null && !videoUrl.isEmpty()) {
-                            mediaItem = new MediaItem.Builder()
-                                    .setUri(videoUrl)
-                                    .setMimeType(MimeTypes.VIDEO_UNKNOWN)
-                                    .setMediaMetadata(movieMetadata)
-                                    .build();
-                        } else {
-                            Log.e(TAG, "Cannot create mediaItem: videoUrl is null or empty");
-                        }
-
-                        // Set up session listeners
-                        setupCastSessionListeners();
-
                     } catch (Exception e) {
                         Log.e(TAG, "Error initializing cast service", e);
                     }
@@ -1834,6 +2124,45 @@ public class FullscreenExoPlayerFragment extends Fragment {
         });
     }
 
+    /**
+     * Builds the MediaItem sent to the cast device, on the first cast session.
+     *
+     * @return The item or null if there is no video url
+     */
+    private MediaItem getCastMediaItem() {
+        if (mediaItem != null) {
+            return mediaItem;
+        }
+
+        // Prepare metadata for casting
+        MediaMetadata movieMetadata;
+        if (posterUrl != null && !posterUrl.isEmpty()) {
+            movieMetadata = new MediaMetadata.Builder()
+                    .setTitle(videoTitle != null ? videoTitle : "")
+                    .setSubtitle(videoSubtitle != null ? videoSubtitle : "")
+                    .setMediaType(MediaMetadata.MEDIA_TYPE_MOVIE)
+                    .setArtworkUri(Uri.parse(posterUrl))
+                    .build();
+        } else {
+            movieMetadata = new MediaMetadata.Builder()
+                    .setTitle(videoTitle != null ? videoTitle : "")
+                    .setSubtitle(videoSubtitle != null ? videoSubtitle : "")
+                    .build();
+        }
+
+        // Check if video URL is valid
+        if (videoUrl != null && !videoUrl.isEmpty()) {
+            mediaItem = new MediaItem.Builder()
+                    .setUri(videoUrl)
+                    .setMimeType(MimeTypes.VIDEO_UNKNOWN)
+                    .setMediaMetadata(movieMetadata)
+                    .build();
+        } else {
+            Log.e(TAG, "Cannot create mediaItem: videoUrl is null or empty");
+        }
+        return mediaItem;
+    }
+
     /**
      * Sets up listeners for cast session events
      */
@@ -1843,6 +2172,8 @@ public class FullscreenExoPlayerFragment extends Fragment {
             return;
         }
 
+        castHandoffManager = new CastHandoffManager(castPlayer, castContext.getSessionManager());
+
         castPlayer.setSessionAvailabilityListener(new SessionAvailabilityListener() {
             @Override
             public void onCastSessionAvailable() {
@@ -1860,22 +2191,25 @@ public class FullscreenExoPlayerFragment extends Fragment {
                     return;
                 }
 
-                final Long videoPosition = player.getCurrentPosition();
+                // The local player is paused and its buffer kept warm near the receiver position,
+                // its seeks and state changes meanwhile must not reach the UI nor JS
+                detachLocalPlayerListeners();
+                final Long videoPosition = castHandoffManager.onCastStarted(player);
 
                 // Hide resize button during casting
                 if (resizeButton != null) {
                     resizeButton.setVisibility(View.GONE);
                 }
 
-                player.setPlayWhenReady(false);
-
                 // Show casting indicator
                 if (castImage != null) {
                     castImage.setVisibility(View.VISIBLE);
+                    loadCastImage();
                 }
 
                 // Configure castPlayer and switch PlayerView
-                if (mediaItem != null) {
+                MediaItem castMediaItem = getCastMediaItem();
+                if (castMediaItem != null) {
                     // Set consistent seek increments (10 seconds for both rewind and forward)
                     try {
                         RemoteMediaClient remoteMediaClient = castContext.getSessionManager()
@@ -1890,7 +2224,7 @@ public class FullscreenExoPlayerFragment extends Fragment {
                         Log.e(TAG, "Error accessing cast remote media client", e);
                     }
 
-                    castPlayer.setMediaItem(mediaItem, videoPosition);
+                    castPlayer.setMediaItem(castMediaItem, videoPosition);
                     playerView.setPlayer(castPlayer);
                     // Keep controller visible at all times in casting mode
                     playerView.setControllerShowTimeoutMs(0);
@@ -1907,15 +2241,8 @@ public class FullscreenExoPlayerFragment extends Fragment {
             public void onCastSessionUnavailable() {
                 isCasting = false;
 
-                // Check if castPlayer is still valid
-                Long videoPosition = 0L;
-                if (castPlayer != null) {
-                    try {
-                        videoPosition = castPlayer.getCurrentPosition();
-                    } catch (Exception e) {
-                        Log.e(TAG, "Error getting cast player position", e);
-                    }
-                }
+                // Last position reported by the receiver, the local player is already buffering there
+                castHandoffManager.onCastEnded();
 
                 // Check if playerView is still valid
                 if (playerView == null) {
@@ -1941,9 +2268,13 @@ public class FullscreenExoPlayerFragment extends Fragment {
                 hideAllIndicators();
 
                 // Restore the player configuration
+                attachLocalPlayerListeners();
+                if (player.getPlaybackState() == Player.STATE_IDLE) {
+                    // Loading failed while casting, try again now that the local player is needed
+                    player.prepare();
+                }
                 playerView.setPlayer(player);
                 player.setPlayWhenReady(true);
-                player.seekTo(videoPosition);
                 playerView.setControllerShowTimeoutMs(3000);
                 playerView.setControllerHideOnTouch(true);
             }
@@ -1976,6 +2307,40 @@ public class FullscreenExoPlayerFragment extends Fragment {
         mediaRouter.addCallback(mSelector, mediaRouterCallback, MediaRouter.CALLBACK_FLAG_REQUEST_DISCOVERY);
     }
 
+    /**
+     * Stops listening to the local player while the cast receiver plays.
+     */
+    private void detachLocalPlayerListeners() {
+        if (localPlayerListenersDetached) {
+            return;
+        }
+        localPlayerListenersDetached = true;
+        player.removeListener(playerListener);
+        if (timeUpdateEmitter != null) {
+            timeUpdateEmitter.stop();
+        }
+        if (qoeCollector != null) {
+            qoeCollector.pause(player);
+        }
+    }
+
+    /**
+     * Listens to the local player again once casting has ended.
+     */
+    private void attachLocalPlayerListeners() {
+        if (!localPlayerListenersDetached) {
+            return;
+        }
+        localPlayerListenersDetached = false;
+        player.addListener(playerListener);
+        if (timeUpdateEmitter != null) {
+            timeUpdateEmitter.start();
+        }
+        if (qoeCollector != null) {
+            qoeCollector.resume(player);
+        }
+    }
+
     /**
      * Empty callback implementation for MediaRouter.
      * Used as a placeholder for the MediaRouter callback mechanism.
@@ -2069,6 +2434,17 @@ public class FullscreenExoPlayerFragment extends Fragment {
 
         if (mAudioManager == null) return;
 
+        updateVolumePercent(volumeLevel, isIncreasing);
+        applyVolumePercent();
+    }
+
+    /**
+     * Computes the volume percentage of a volume level, without setting it.
+     *
+     * @param volumeLevel  volume level between 0 and 1.0 (100%)
+     * @param isIncreasing indicates if the volume is increasing (true) or decreasing (false)
+     */
+    private void updateVolumePercent(float volumeLevel, boolean isIncreasing) {
         // Ensure volume is between 0 and 1.0 (100%)
         volumeLevel = Math.max(0f, Math.min(1.0f, volumeLevel));
 
@@ -2086,9 +2462,14 @@ public class FullscreenExoPlayerFragment extends Fragment {
 
         // Store current value for future calls
         currentVolumePercent = targetVolumePercent;
+    }
 
+    /**
+     * Sets the system and player volume to the current volume percentage.
+     */
+    private void applyVolumePercent() {
         // Recalculate normalized value
-        float normalizedVolume = targetVolumePercent / 100f;
+        float normalizedVolume = currentVolumePercent / 100f;
 
         // Calculate system volume based on volumeLevel
         int maxVolume = mAudioManager.getStreamMaxVolume(AudioManager.STREAM_MUSIC);
@@ -2108,8 +2489,16 @@ public class FullscreenExoPlayerFragment extends Fragment {
             player.setVolume(normalizedVolume);
         }
 
-        System.out.println("!!!! VIDEO_VOLUME: Volume set to " + targetVolumePercent + "% (" + targetVolume + "/" + maxVolume + ")");
-        Log.e(TAG_VOLUME, "Volume set to " + targetVolumePercent + "% (" + targetVolume + "/" + maxVolume + ")");
+        // A gesture logs its final volume on release only
+        if (!volumeGestureInProgress) {
+            logVolumeLevel();
+        }
+    }
+
+    private void logVolumeLevel() {
+        if (mAudioManager == null) return;
+        int maxVolume = mAudioManager.getStreamMaxVolume(AudioManager.STREAM_MUSIC);
+        Log.d(TAG_VOLUME, "Volume set to " + currentVolumePercent + "% (" + lastSetVolume + "/" + maxVolume + ")");
     }
 
     /**
@@ -0,0 +1,173 @@
+package app.wako.plugins.videoplayer.Notifications;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import com.getcapacitor.JSArray;
+import com.getcapacitor.JSObject;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Sends player events over the Capacitor bridge, coalescing bursts of the same event.
+ * Within the coalescing window only the latest event of each kind is kept, play and pause
+ * counting as the same kind. With batching enabled, the events kept are sent together as
+ * one "playerEventBatch" event instead of one bridge message each.
+ * Events that are not coalescable first flush the pending ones so the order is kept.
+ */
+public class EventDispatcher {
+
+    public static final String BATCH_EVENT = "playerEventBatch";
+
+    /**
+     * Receives the events leaving the dispatcher, usually the plugin's notifyListeners.
+     */
+    public interface EventSink {
+        void send(String eventName, JSObject data);
+    }
+
+    /**
+     * Ends the coalescing windows, on the main thread unless another timer is given.
+     */
+    public interface WindowTimer {
+        void schedule(Runnable runnable, long delayMs);
+
+        void cancel(Runnable runnable);
+    }
+
+    // Coalescable events and the key under which they replace each other
+    private static final Map<String, String> COALESCING_KEYS = new HashMap<>();
+
+    static {
+        COALESCING_KEYS.put("playerPlay", "playState");
+        COALESCING_KEYS.put("playerPause", "playState");
+        for (String eventName : Arrays.asList("playerTracksChanged", "playerQoE", "playerTimeUpdate")) {
+            COALESCING_KEYS.put(eventName, eventName);
+        }
+    }
+
+    private static class PendingEvent {
+        final String eventName;
+        final JSObject data;
+
+        PendingEvent(String eventName, JSObject data) {
+            this.eventName = eventName;
+            this.data = data;
+        }
+    }
+
+    private final EventSink sink;
+    private final WindowTimer windowTimer;
+    private final LinkedHashMap<String, PendingEvent> pendingEvents = new LinkedHashMap<>();
+    private long coalescingWindowMs;
+    private boolean batching;
+
+    public EventDispatcher(EventSink sink) {
+        this(sink, mainThreadTimer());
+    }
+
+    public EventDispatcher(EventSink sink, WindowTimer windowTimer) {
+        this.sink = sink;
+        this.windowTimer = windowTimer;
+    }
+
+    private static WindowTimer mainThreadTimer() {
+        final Handler handler = new Handler(Looper.getMainLooper());
+        return new WindowTimer() {
+            @Override
+            public void schedule(Runnable runnable, long delayMs) {
+                handler.postDelayed(runnable, delayMs);
+            }
+
+            @Override
+            public void cancel(Runnable runnable) {
+                handler.removeCallbacks(runnable);
+            }
+        };
+    }
+
+    /**
+     * @param coalescingWindowMs Window in ms during which events of the same kind are merged, 0 disables coalescing
+     * @param batching           Whether the events of a window are sent as one playerEventBatch event
+     */
+    public void configure(long coalescingWindowMs, boolean batching) {
+        flush();
+        synchronized (this) {
+            this.coalescingWindowMs = Math.max(0, coalescingWindowMs);
+            this.batching = batching;
+        }
+    }
+
+    /**
+     * Sends an event, possibly delayed by the coalescing window.
+     *
+     * @param eventName The event name
+     * @param data      The event payload
+     */
+    public void dispatch(String eventName, JSObject data) {
+        String coalescingKey = COALESCING_KEYS.get(eventName);
+        synchronized (this) {
+            if (coalescingWindowMs > 0 && coalescingKey != null) {
+                boolean windowOpen = !pendingEvents.isEmpty();
+                // Re-inserting moves the event after the others, as if it had just been posted
+                pendingEvents.remove(coalescingKey);
+                pendingEvents.put(coalescingKey, new PendingEvent(eventName, data));
+                if (!windowOpen) {
+                    windowTimer.schedule(flushRunnable, coalescingWindowMs);
+                }
+                return;
+            }
+        }
+        flush();
+        sink.send(eventName, data);
+    }
+
+    /**
+     * Sends the pending events right away.
+     */
+    public void flush() {
+        List<PendingEvent> events;
+        boolean sendAsBatch;
+        synchronized (this) {
+            windowTimer.cancel(flushRunnable);
+            if (pendingEvents.isEmpty()) {
+                return;
+            }
+            events = new ArrayList<>(pendingEvents.values());
+            pendingEvents.clear();
+            sendAsBatch = batching && events.size() > 1;
+        }
+
+        if (!sendAsBatch) {
+            for (PendingEvent event : events) {
+                sink.send(event.eventName, event.data);
+            }
+            return;
+        }
+        JSArray batch = new JSArray();
+        for (PendingEvent event : events) {
+            JSObject entry = new JSObject();
+            entry.put("eventName", event.eventName);
+            entry.put("data", event.data);
+            batch.put(entry);
+        }
+        JSObject data = new JSObject();
+        data.put("events", batch);
+        sink.send(BATCH_EVENT, data);
+    }
+
+    /**
+     * Drops the pending events without sending them.
+     */
+    public synchronized void cancel() {
+        windowTimer.cancel(flushRunnable);
+        pendingEvents.clear();
+    }
+
+    private final Runnable flushRunnable = this::flush;
+}
@@ -2,20 +2,17 @@ package app.wako.plugins.videoplayer.Notifications;
 
 import java.util.Map;
 
+/**
+ * Observer registered in the NotificationCenter.
+ * The payload of each notification is given to run(Map) so that observers keep no
+ * state between two posts and can be called from several threads at once.
+ */
 public class MyRunnable implements Runnable {
 
-    private Map<String, Object> info;
-
-    public Map<String, Object> getInfo() {
-        return this.info;
-    }
-
-    public void setInfo(Map<String, Object> _info) {
-        this.info = _info;
-    }
-
     @Override
-    public void run() {}
+    public void run() {
+        run(null);
+    }
 
     public void run(Map<String, Object> info) {}
 }
@@ -1,60 +1,48 @@
 package app.wako.plugins.videoplayer.Notifications;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.Iterator;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 public class NotificationCenter {
 
-    //static reference for singleton
-    private static NotificationCenter _instance;
+    //static reference for singleton, initialized eagerly so defaultCenter() never locks
+    private static final NotificationCenter _instance = new NotificationCenter();
 
-    private final HashMap<String, ArrayList<MyRunnable>> registeredObjects;
+    // Posting only reads the copy-on-write lists, so it never waits on a registration
+    private final ConcurrentHashMap<String, CopyOnWriteArrayList<MyRunnable>> registeredObjects;
 
     //default c'tor for singleton
     private NotificationCenter() {
-        registeredObjects = new HashMap<String, ArrayList<MyRunnable>>();
+        registeredObjects = new ConcurrentHashMap<String, CopyOnWriteArrayList<MyRunnable>>();
     }
 
     //returning the reference
-    public static synchronized NotificationCenter defaultCenter() {
-        if (_instance == null) _instance = new NotificationCenter();
+    public static NotificationCenter defaultCenter() {
         return _instance;
     }
 
-    public synchronized void addMethodForNotification(String notificationName, MyRunnable r) {
-        ArrayList<MyRunnable> list = registeredObjects.get(notificationName);
-        if (list == null) {
-            list = new ArrayList<MyRunnable>();
-            registeredObjects.put(notificationName, list);
-        }
-        list.add(r);
+    public void addMethodForNotification(String notificationName, MyRunnable r) {
+        registeredObjects.computeIfAbsent(notificationName, name -> new CopyOnWriteArrayList<MyRunnable>()).add(r);
     }
 
-    public synchronized void removeMethodForNotification(String notificationName, MyRunnable r) {
-        ArrayList<MyRunnable> list = registeredObjects.get(notificationName);
+    public void removeMethodForNotification(String notificationName, MyRunnable r) {
+        CopyOnWriteArrayList<MyRunnable> list = registeredObjects.get(notificationName);
         if (list != null) {
             list.remove(r);
         }
     }
 
-    public synchronized void removeAllNotifications() {
-        for (Iterator<Map.Entry<String, ArrayList<MyRunnable>>> entry = registeredObjects.entrySet().iterator(); entry.hasNext();) {
-            Map.Entry<String, ArrayList<MyRunnable>> e = entry.next();
-            String key = e.getKey();
-            ArrayList<MyRunnable> value = e.getValue();
-            removeMethodForNotification(key, value.get(0));
-            entry.remove();
-        }
+    public void removeAllNotifications() {
+        registeredObjects.clear();
     }
 
-    public synchronized void postNotification(String notificationName, Map<String, Object> _info) {
-        ArrayList<MyRunnable> list = registeredObjects.get(notificationName);
+    public void postNotification(String notificationName, Map<String, Object> _info) {
+        CopyOnWriteArrayList<MyRunnable> list = registeredObjects.get(notificationName);
         if (list != null) {
-            for (MyRunnable r : new ArrayList<>(list)) {
-                r.setInfo(_info);
-                r.run();
+            // The payload is passed to each observer, nothing is shared between concurrent posts
+            for (MyRunnable r : list) {
+                r.run(_info);
             }
         }
     }
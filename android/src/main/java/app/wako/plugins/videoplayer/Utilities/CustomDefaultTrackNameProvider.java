@@ -3,46 +3,128 @@ package app.wako.plugins.videoplayer.Utilities;
 import android.content.res.Resources;
 import android.text.TextUtils;
 
+import androidx.media3.common.C;
 import androidx.media3.common.Format;
 import androidx.media3.common.MimeTypes;
+import androidx.media3.common.Tracks;
 import androidx.media3.common.util.UnstableApi;
+import androidx.media3.common.util.Util;
 import androidx.media3.ui.DefaultTrackNameProvider;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 @UnstableApi
 public class CustomDefaultTrackNameProvider extends DefaultTrackNameProvider {
     
-    // Map to convert 3-letter language codes to 2-letter codes
-    private static final Map<String, String> LANGUAGE_CODE_MAP = new HashMap<>();
-    
+    // Region of the flag shown for each ISO 639-1 language, and for the ISO 639-2 languages
+    // without a 639-1 code. Other 639-2 codes are normalized to 639-1 before the lookup.
+    private static final Map<String, String> LANGUAGE_REGION_MAP = new HashMap<>();
+
     static {
-        // Initialize common language code mappings
-        LANGUAGE_CODE_MAP.put("eng", "GB"); // English
-        LANGUAGE_CODE_MAP.put("fra", "FR"); // French
-        LANGUAGE_CODE_MAP.put("deu", "DE"); // German
-        LANGUAGE_CODE_MAP.put("ita", "IT"); // Italian
-        LANGUAGE_CODE_MAP.put("spa", "ES"); // Spanish
-        LANGUAGE_CODE_MAP.put("jpn", "JP"); // Japanese
-        LANGUAGE_CODE_MAP.put("kor", "KR"); // Korean
-        LANGUAGE_CODE_MAP.put("zho", "CN"); // Chinese
-        LANGUAGE_CODE_MAP.put("rus", "RU"); // Russian
-        LANGUAGE_CODE_MAP.put("ara", "SA"); // Arabic
-        LANGUAGE_CODE_MAP.put("por", "PT"); // Portuguese
-        LANGUAGE_CODE_MAP.put("nld", "NL"); // Dutch
-        LANGUAGE_CODE_MAP.put("swe", "SE"); // Swedish
-        LANGUAGE_CODE_MAP.put("hin", "IN"); // Hindi
-        // Add more mappings as needed
+        String[] languageRegions = {
+                "aa", "ET", "ab", "GE", "af", "ZA", "ak", "GH", "am", "ET", "an", "ES", "ar", "SA", "as", "IN",
+                "av", "RU", "ay", "BO", "az", "AZ", "ba", "RU", "be", "BY", "bg", "BG", "bi", "VU", "bm", "ML",
+                "bn", "BD", "bo", "CN", "br", "FR", "bs", "BA", "ca", "ES", "ce", "RU", "ch", "GU", "co", "FR",
+                "cr", "CA", "cs", "CZ", "cv", "RU", "cy", "GB", "da", "DK", "de", "DE", "dv", "MV", "dz", "BT",
+                "ee", "GH", "el", "GR", "en", "GB", "es", "ES", "et", "EE", "eu", "ES", "fa", "IR", "ff", "SN",
+                "fi", "FI", "fj", "FJ", "fo", "FO", "fr", "FR", "fy", "NL", "ga", "IE", "gd", "GB", "gl", "ES",
+                "gn", "PY", "gu", "IN", "gv", "IM", "ha", "NG", "he", "IL", "hi", "IN", "ho", "PG", "hr", "HR",
+                "ht", "HT", "hu", "HU", "hy", "AM", "hz", "NA", "id", "ID", "ig", "NG", "ii", "CN", "ik", "US",
+                "is", "IS", "it", "IT", "iu", "CA", "ja", "JP", "jv", "ID", "ka", "GE", "kg", "CD", "ki", "KE",
+                "kj", "NA", "kk", "KZ", "kl", "GL", "km", "KH", "kn", "IN", "ko", "KR", "kr", "NG", "ks", "IN",
+                "ku", "IQ", "kv", "RU", "kw", "GB", "ky", "KG", "lb", "LU", "lg", "UG", "li", "NL", "ln", "CD",
+                "lo", "LA", "lt", "LT", "lu", "CD", "lv", "LV", "mg", "MG", "mh", "MH", "mi", "NZ", "mk", "MK",
+                "ml", "IN", "mn", "MN", "mr", "IN", "ms", "MY", "mt", "MT", "my", "MM", "na", "NR", "nb", "NO",
+                "nd", "ZW", "ne", "NP", "ng", "NA", "nl", "NL", "nn", "NO", "no", "NO", "nr", "ZA", "nv", "US",
+                "ny", "MW", "oc", "FR", "om", "ET", "or", "IN", "os", "GE", "pa", "IN", "pl", "PL", "ps", "AF",
+                "pt", "PT", "qu", "PE", "rm", "CH", "rn", "BI", "ro", "RO", "ru", "RU", "rw", "RW", "sc", "IT",
+                "sd", "PK", "se", "NO", "sg", "CF", "si", "LK", "sk", "SK", "sl", "SI", "sm", "WS", "sn", "ZW",
+                "so", "SO", "sq", "AL", "sr", "RS", "ss", "SZ", "st", "LS", "su", "ID", "sv", "SE", "sw", "TZ",
+                "ta", "IN", "te", "IN", "tg", "TJ", "th", "TH", "ti", "ER", "tk", "TM", "tl", "PH", "tn", "BW",
+                "to", "TO", "tr", "TR", "ts", "ZA", "tt", "RU", "tw", "GH", "ty", "PF", "ug", "CN", "uk", "UA",
+                "ur", "PK", "uz", "UZ", "ve", "ZA", "vi", "VN", "wa", "BE", "wo", "SN", "xh", "ZA", "yi", "IL",
+                "yo", "NG", "za", "CN", "zh", "CN", "zu", "ZA", "fil", "PH", "haw", "US", "yue", "HK"
+        };
+        for (int i = 0; i < languageRegions.length; i += 2) {
+            LANGUAGE_REGION_MAP.put(languageRegions[i], languageRegions[i + 1]);
+        }
     }
-    
+
+    // Names are computed once per distinct format, the track dialog binds rows again on each scroll
+    private static final int MAX_CACHED_NAMES = 256;
+    private static final ExecutorService prewarmExecutor = Executors.newSingleThreadExecutor();
+
+    private final Map<String, String> trackNames = new LinkedHashMap<String, String>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+            return size() > MAX_CACHED_NAMES;
+        }
+    };
+
     public CustomDefaultTrackNameProvider(Resources resources) {
         super(resources);
     }
 
     @Override
     public String getTrackName(Format format) {
+        String key = buildCacheKey(format);
+        synchronized (trackNames) {
+            String trackName = trackNames.get(key);
+            if (trackName != null) {
+                return trackName;
+            }
+        }
+        String trackName = computeTrackName(format);
+        synchronized (trackNames) {
+            trackNames.put(key, trackName);
+        }
+        return trackName;
+    }
+
+    /**
+     * Computes the names of the audio, video and text tracks in the background, so that
+     * opening the track dialog only reads them.
+     *
+     * @param tracks The new tracks of the player
+     */
+    public void prewarm(Tracks tracks) {
+        final List<Format> formats = new ArrayList<>();
+        for (Tracks.Group group : tracks.getGroups()) {
+            int type = group.getType();
+            if (type != C.TRACK_TYPE_AUDIO && type != C.TRACK_TYPE_VIDEO && type != C.TRACK_TYPE_TEXT) {
+                continue;
+            }
+            for (int i = 0; i < group.length; i++) {
+                formats.add(group.getTrackFormat(i));
+            }
+        }
+        if (formats.isEmpty()) {
+            return;
+        }
+        prewarmExecutor.execute(() -> {
+            for (Format format : formats) {
+                getTrackName(format);
+            }
+        });
+    }
+
+    /**
+     * Key of the format fields the name depends on.
+     */
+    private static String buildCacheKey(Format format) {
+        return format.id + '|' + format.language + '|' + format.label + '|' + format.bitrate
+                + '|' + format.sampleMimeType + '|' + format.codecs + '|' + format.channelCount
+                + '|' + format.width + 'x' + format.height + '|' + format.roleFlags + '|' + format.selectionFlags;
+    }
+
+    private String computeTrackName(Format format) {
         String trackName = super.getTrackName(format);
         
         // Add language flag emoji if language is available
@@ -93,26 +175,19 @@ public class CustomDefaultTrackNameProvider extends DefaultTrackNameProvider {
         if (TextUtils.isEmpty(languageCode)) {
             return "";
         }
-        
-        String langCode = languageCode.toLowerCase();
-        
-        // Check if it's a 3-letter code that needs mapping
-        if (langCode.length() == 3 && LANGUAGE_CODE_MAP.containsKey(langCode)) {
-            return LANGUAGE_CODE_MAP.get(langCode);
-        }
-        
-        // Special case for English
-        if (langCode.equals("en")) {
-            return "GB"; // Use UK flag for English
-        }
-        
-        // For 2-letter codes or unknown 3-letter codes, use first two letters
-        // This works for most 2-letter language codes that match country codes
-        if (langCode.length() >= 2) {
-            return langCode.substring(0, 2).toUpperCase();
+
+        // Turns 639-2 codes into 639-1 ones, e.g. "fre" and "fra" into "fr"
+        String[] subtags = Util.normalizeLanguageCode(languageCode).split("-");
+
+        // A region in the tag, e.g. "pt-BR", is the most accurate flag
+        for (int i = 1; i < subtags.length; i++) {
+            if (subtags[i].length() == 2 && Character.isLetter(subtags[i].charAt(0)) && Character.isLetter(subtags[i].charAt(1))) {
+                return subtags[i].toUpperCase(Locale.ROOT);
+            }
         }
-        
-        return "";
+
+        String region = LANGUAGE_REGION_MAP.get(subtags[0]);
+        return region != null ? region : "";
     }
     
     /**
@@ -29,9 +29,11 @@ import org.json.JSONException;
 import org.json.JSONObject;
 
 import java.io.File;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.regex.Pattern;
 
 /**
  * Utility class for handling subtitle-related operations in the video player.
@@ -41,6 +43,10 @@ import java.util.List;
 public class SubtitleUtils {
 
     private static final String TAG = "SubtitleUtils";
+
+    // "00:00:01,000 --> 00:00:02,000" SubRip cue timing line
+    private static final Pattern SRT_TIMING_LINE = Pattern.compile("\\d{1,2}:\\d{2}:\\d{2}[,.]\\d{3}\\s*-->");
+    private static final String TTML_NAMESPACE = "http://www.w3.org/ns/ttml";
     
     // Store the last selected subtitle track information
     private static Format lastSelectedSubtitleTrack = null;
@@ -55,7 +61,19 @@ public class SubtitleUtils {
      * @return The MIME type string for the identified subtitle format (SSA, VTT, TTML, or SubRip)
      */
     public static String getSubtitleMime(Uri uri) {
-        final String path = uri.getPath();
+        String mime = getSubtitleMimeFromExtension(uri);
+        // Default to SubRip format if we can't determine the type
+        return mime != null ? mime : MimeTypes.APPLICATION_SUBRIP;
+    }
+
+    /**
+     * Determines the MIME type of a subtitle file from its extension only.
+     *
+     * @param uri The URI of the subtitle file
+     * @return The MIME type, or null when the URI does not tell the format
+     */
+    public static String getSubtitleMimeFromExtension(Uri uri) {
+        final String path = uri.getPath() != null ? uri.getPath() : "";
         // Clean the path from potential query parameters
         String cleanPath = path;
 
@@ -83,10 +101,40 @@ public class SubtitleUtils {
                 fullUrl.contains("/sub.ttml") || fullUrl.contains("/sub.xml") ||
                 fullUrl.contains("/sub.dfxp")) {
             return MimeTypes.APPLICATION_TTML;
-        } else {
-            // Default to SubRip format if we can't determine the type
+        } else if (cleanPath.endsWith(".srt") || fullUrl.contains("/sub.srt")) {
             return MimeTypes.APPLICATION_SUBRIP;
         }
+        return null;
+    }
+
+    /**
+     * Detects the format of a subtitle file from its first bytes.
+     *
+     * @param head The first bytes of the file
+     * @return The MIME type, or null if the content is not recognized
+     */
+    public static String sniffSubtitleMime(byte[] head) {
+        String text = new String(head, StandardCharsets.UTF_8);
+        // Skip the byte order mark and leading blank lines
+        if (text.startsWith("\uFEFF")) {
+            text = text.substring(1);
+        }
+        text = text.trim();
+
+        if (text.startsWith("WEBVTT")) {
+            return MimeTypes.TEXT_VTT;
+        }
+        if (text.regionMatches(true, 0, "[Script Info]", 0, "[Script Info]".length())) {
+            return MimeTypes.TEXT_SSA;
+        }
+        // An HTML error page also starts with '<', TTML is recognized by its namespace
+        if ((text.startsWith("<tt") || text.startsWith("<?xml")) && text.contains(TTML_NAMESPACE)) {
+            return MimeTypes.APPLICATION_TTML;
+        }
+        if (SRT_TIMING_LINE.matcher(text).find()) {
+            return MimeTypes.APPLICATION_SUBRIP;
+        }
+        return null;
     }
 
     /**
@@ -191,8 +239,26 @@ public class SubtitleUtils {
             Uri uri,
             String subtitleName,
             String subtitleLanguage) {
+        return buildSubtitle(context, uri, subtitleName, subtitleLanguage, SubtitleUtils.getSubtitleMime(uri));
+    }
+
+    /**
+     * Builds a subtitle configuration for ExoPlayer with an already known MIME type.
+     *
+     * @param context          The Android context
+     * @param uri              The URI of the subtitle file
+     * @param subtitleName     The name of the subtitle (can be null)
+     * @param subtitleLanguage The language of the subtitle (can be null)
+     * @param subtitleMime     The MIME type of the subtitle file
+     * @return A subtitle configuration for ExoPlayer
+     */
+    public static MediaItem.SubtitleConfiguration buildSubtitle(
+            Context context,
+            Uri uri,
+            String subtitleName,
+            String subtitleLanguage,
+            String subtitleMime) {
 
-        final String subtitleMime = SubtitleUtils.getSubtitleMime(uri);
         // If no language is provided, try to detect it from the filename
         final String detectedLanguage = SubtitleUtils.getSubtitleLanguage(uri);
         // Priority to provided language, otherwise use detected language
@@ -256,67 +322,47 @@ public class SubtitleUtils {
      */
     @OptIn(markerClass = UnstableApi.class)
     public static void enableSubtitles(DefaultTrackSelector trackSelector, ExoPlayer player) {
-        // Enable subtitles by not ignoring them in the selector
-        trackSelector.setParameters(trackSelector.buildUponParameters()
-                .setIgnoredTextSelectionFlags(C.SELECTION_FLAG_DEFAULT));
+        // Enable subtitles by not ignoring them in the selector, applied with the language below
+        TrackSelectionTransaction transaction = TrackSelectionTransaction.begin(trackSelector).enableSubtitles();
         
-        Tracks tracks = player.getCurrentTracks();
+        List<Tracks.Group> textGroups = TrackIndex.of(player).getGroups(C.TRACK_TYPE_TEXT);
         boolean subtitleSelected = false;
         
         // Try to restore the last selected subtitle if we have one stored
-        if (lastSelectedSubtitleTrack != null && lastSelectedGroupIndex >= 0 && lastSelectedTrackIndex >= 0) {
-            int currentGroupIndex = 0;
-            
-            for (Tracks.Group trackGroup : tracks.getGroups()) {
-                if (trackGroup.getType() == C.TRACK_TYPE_TEXT) {
-                    if (currentGroupIndex == lastSelectedGroupIndex) {
-                        TrackGroup group = trackGroup.getMediaTrackGroup();
-                        // Check if the saved track index is valid for this group
-                        if (lastSelectedTrackIndex < group.length) {
-                            // Apply the selection manually by matching the track
-                            Format format = group.getFormat(lastSelectedTrackIndex);
-                            if (format.language != null) {
-                                trackSelector.setParameters(
-                                    trackSelector.buildUponParameters()
-                                        .setPreferredTextLanguage(format.language)
-                                );
-                                Log.d(TAG, "Restored subtitle track with language: " + format.language);
-                                subtitleSelected = true;
-                                break;
-                            }
-                        }
-                    }
-                    currentGroupIndex++;
+        if (lastSelectedSubtitleTrack != null && lastSelectedGroupIndex >= 0 && lastSelectedTrackIndex >= 0
+                && lastSelectedGroupIndex < textGroups.size()) {
+            TrackGroup group = textGroups.get(lastSelectedGroupIndex).getMediaTrackGroup();
+            // Check if the saved track index is valid for this group
+            if (lastSelectedTrackIndex < group.length) {
+                // Apply the selection manually by matching the track
+                Format format = group.getFormat(lastSelectedTrackIndex);
+                if (format.language != null) {
+                    transaction.setPreferredTextLanguage(format.language);
+                    Log.d(TAG, "Restored subtitle track with language: " + format.language);
+                    subtitleSelected = true;
                 }
             }
         }
         
         // If no subtitle was selected or restored, select the first available subtitle track
         if (!subtitleSelected) {
-            for (Tracks.Group trackGroup : tracks.getGroups()) {
-                if (trackGroup.getType() == C.TRACK_TYPE_TEXT) {
-                    TrackGroup group = trackGroup.getMediaTrackGroup();
-                    if (group.length > 0) {
-                        Format format = group.getFormat(0);
-                        if (format.language != null) {
-                            trackSelector.setParameters(
-                                trackSelector.buildUponParameters()
-                                    .setPreferredTextLanguage(format.language)
-                            );
-                            Log.d(TAG, "Selected first available subtitle track with language: " + format.language);
-                        } else {
-                            // If no language info, still try to select it
-                            trackSelector.setParameters(
-                                trackSelector.buildUponParameters()
-                                    .setPreferredTextLanguage("")  // Empty string to match any subtitle
-                            );
-                            Log.d(TAG, "Selected first available subtitle track (no language info)");
-                        }
-                        break;
+            for (Tracks.Group trackGroup : textGroups) {
+                TrackGroup group = trackGroup.getMediaTrackGroup();
+                if (group.length > 0) {
+                    Format format = group.getFormat(0);
+                    if (format.language != null) {
+                        transaction.setPreferredTextLanguage(format.language);
+                        Log.d(TAG, "Selected first available subtitle track with language: " + format.language);
+                    } else {
+                        // If no language info, still try to select it
+                        transaction.setPreferredTextLanguage("");  // Empty string to match any subtitle
+                        Log.d(TAG, "Selected first available subtitle track (no language info)");
                     }
+                    break;
                 }
             }
         }
+        transaction.commit();
     }
 
     /**
@@ -326,8 +372,7 @@ public class SubtitleUtils {
      */
     @OptIn(markerClass = UnstableApi.class)
     public static void enableSubtitles(DefaultTrackSelector trackSelector) {
-        trackSelector.setParameters(trackSelector.buildUponParameters()
-                .setIgnoredTextSelectionFlags(C.SELECTION_FLAG_DEFAULT));
+        TrackSelectionTransaction.begin(trackSelector).enableSubtitles().commit();
     }
 
     /**
@@ -342,10 +387,11 @@ public class SubtitleUtils {
         storeCurrentSubtitleTrack(player);
         
         // Disable all subtitle tracks by setting a very high selection flag
-        trackSelector.setParameters(trackSelector.buildUponParameters()
+        TrackSelectionTransaction.begin(trackSelector)
                 .setIgnoredTextSelectionFlags(C.SELECTION_FLAG_DEFAULT | C.SELECTION_FLAG_FORCED | C.SELECTION_FLAG_AUTOSELECT)
                 .setPreferredTextLanguage(null)  // Clear any preferred language
-                .setSelectUndeterminedTextLanguage(false));  // Don't auto-select any language
+                .setSelectUndeterminedTextLanguage(false)  // Don't auto-select any language
+                .commit();
     }
 
     /**
@@ -355,8 +401,7 @@ public class SubtitleUtils {
      */
     @OptIn(markerClass = UnstableApi.class)
     public static void disableSubtitles(DefaultTrackSelector trackSelector) {
-        trackSelector.setParameters(trackSelector.buildUponParameters()
-                .setIgnoredTextSelectionFlags(C.SELECTION_FLAG_DEFAULT | C.SELECTION_FLAG_FORCED));
+        TrackSelectionTransaction.begin(trackSelector).disableSubtitles().commit();
     }
 
     /**
@@ -366,31 +411,22 @@ public class SubtitleUtils {
      */
     @OptIn(markerClass = UnstableApi.class)
     private static void storeCurrentSubtitleTrack(ExoPlayer player) {
-        Tracks tracks = player.getCurrentTracks();
-        int groupIndex = 0;
-        
-        for (Tracks.Group trackGroup : tracks.getGroups()) {
-            if (trackGroup.getType() == C.TRACK_TYPE_TEXT) {
-                TrackGroup group = trackGroup.getMediaTrackGroup();
-                for (int i = 0; i < group.length; i++) {
-                    if (trackGroup.isTrackSelected(i)) {
-                        lastSelectedSubtitleTrack = group.getFormat(i);
-                        lastSelectedGroupIndex = groupIndex;
-                        lastSelectedTrackIndex = i;
-                        
-                        String trackId = lastSelectedSubtitleTrack.id != null ? 
-                            lastSelectedSubtitleTrack.id : "unknown";
-                        String language = lastSelectedSubtitleTrack.language != null ? 
-                            lastSelectedSubtitleTrack.language : "unknown";
-                            
-                        Log.d(TAG, "Stored subtitle track: " + trackId + 
-                              " (" + language + ") at group " + 
-                              groupIndex + ", track " + i);
-                        return;
-                    }
-                }
-                groupIndex++;
-            }
+        TrackIndex trackIndex = TrackIndex.of(player);
+        Format selectedFormat = trackIndex.getSelectedFormat(C.TRACK_TYPE_TEXT);
+        if (selectedFormat != null) {
+            lastSelectedSubtitleTrack = selectedFormat;
+            lastSelectedGroupIndex = trackIndex.getSelectedGroupPosition(C.TRACK_TYPE_TEXT);
+            lastSelectedTrackIndex = trackIndex.getSelectedTrackIndex(C.TRACK_TYPE_TEXT);
+
+            String trackId = lastSelectedSubtitleTrack.id != null ?
+                lastSelectedSubtitleTrack.id : "unknown";
+            String language = lastSelectedSubtitleTrack.language != null ?
+                lastSelectedSubtitleTrack.language : "unknown";
+
+            Log.d(TAG, "Stored subtitle track: " + trackId +
+                  " (" + language + ") at group " +
+                  lastSelectedGroupIndex + ", track " + lastSelectedTrackIndex);
+            return;
         }
         
         // If no subtitle track was selected, clear the stored information
@@ -406,18 +442,7 @@ public class SubtitleUtils {
      */
     @OptIn(markerClass = UnstableApi.class)
     public static Format getCurrentSubtitleTrack(ExoPlayer player) {
-        Tracks tracks = player.getCurrentTracks();
-        for (Tracks.Group trackGroup : tracks.getGroups()) {
-            if (trackGroup.getType() == C.TRACK_TYPE_TEXT && trackGroup.isSelected()) {
-                TrackGroup group = trackGroup.getMediaTrackGroup();
-                for (int i = 0; i < group.length; i++) {
-                    if (trackGroup.isTrackSelected(i)) {
-                        return group.getFormat(i);
-                    }
-                }
-            }
-        }
-        return null;
+        return TrackIndex.of(player).getSelectedFormat(C.TRACK_TYPE_TEXT);
     }
 
      /**
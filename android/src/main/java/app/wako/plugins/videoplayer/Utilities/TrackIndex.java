@@ -0,0 +1,186 @@
+package app.wako.plugins.videoplayer.Utilities;
+
+import androidx.annotation.Nullable;
+import androidx.media3.common.Format;
+import androidx.media3.common.Tracks;
+import androidx.media3.common.util.UnstableApi;
+import androidx.media3.common.util.Util;
+import androidx.media3.exoplayer.ExoPlayer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Lookup tables over the track groups of a Tracks instance, by type, by format id and by
+ * normalized language, with the selected group of each type.
+ * The index of the latest Tracks is kept, so it is built once per track change and shared
+ * by every selection path instead of each one scanning all the groups again.
+ * Groups are described by their first format, as the track selection code does.
+ * Languages are compared by their normalized codes, not as given: "fr", "fre", "fra" and
+ * "FR" all match each other, so a 639-1 locale finds a track tagged with a 639-2 code and
+ * the other way round. Region subtags are kept, "fr" does not match "fr-CA".
+ */
+@UnstableApi
+public final class TrackIndex {
+
+    // Shared by all the players of the process, cleared when the player is released so that
+    // it does not outlive the player's tracks
+    private static volatile TrackIndex lastIndex;
+
+    private static class TypeIndex {
+        final List<Tracks.Group> groups = new ArrayList<>();
+        // First group of each id and language, the ones the linear scans used to return
+        final Map<String, Tracks.Group> groupsById = new HashMap<>();
+        final Map<String, Tracks.Group> groupsByLanguage = new HashMap<>();
+        Tracks.Group selectedGroup;
+        int selectedGroupPosition = -1;
+        int selectedTrackIndex = -1;
+    }
+
+    private final Tracks tracks;
+    private final Map<Integer, TypeIndex> typeIndexes = new HashMap<>();
+
+    private TrackIndex(Tracks tracks) {
+        this.tracks = tracks;
+        for (Tracks.Group group : tracks.getGroups()) {
+            TypeIndex typeIndex = typeIndexes.get(group.getType());
+            if (typeIndex == null) {
+                typeIndex = new TypeIndex();
+                typeIndexes.put(group.getType(), typeIndex);
+            }
+            Format format = group.getMediaTrackGroup().getFormat(0);
+            if (!typeIndex.groupsById.containsKey(format.id)) {
+                typeIndex.groupsById.put(format.id, group);
+            }
+            String language = normalizeLanguage(format.language);
+            if (!typeIndex.groupsByLanguage.containsKey(language)) {
+                typeIndex.groupsByLanguage.put(language, group);
+            }
+            if (typeIndex.selectedGroup == null && group.isSelected()) {
+                for (int i = 0; i < group.length; i++) {
+                    if (group.isTrackSelected(i)) {
+                        typeIndex.selectedGroup = group;
+                        typeIndex.selectedGroupPosition = typeIndex.groups.size();
+                        typeIndex.selectedTrackIndex = i;
+                        break;
+                    }
+                }
+            }
+            typeIndex.groups.add(group);
+        }
+    }
+
+    /**
+     * Gets the index of some tracks, building it only if they changed since the last call.
+     * Must be called on the application looper of the player.
+     *
+     * @param tracks The tracks of the player
+     * @return The index of the tracks
+     */
+    public static TrackIndex of(Tracks tracks) {
+        TrackIndex index = lastIndex;
+        if (index == null || index.tracks != tracks) {
+            index = new TrackIndex(tracks);
+            lastIndex = index;
+        }
+        return index;
+    }
+
+    /**
+     * Drops the index kept for the latest tracks, so that a released player's tracks and
+     * formats are not held until the next track change. Must be called when a player is released.
+     */
+    public static void clear() {
+        lastIndex = null;
+    }
+
+    /**
+     * @param player The player
+     * @return The index of the current tracks of the player
+     */
+    public static TrackIndex of(ExoPlayer player) {
+        return of(player.getCurrentTracks());
+    }
+
+    /**
+     * Normalizes a language so that the 2 and 3 letter codes of a language are equal.
+     *
+     * @param language The language code, can be null
+     * @return The normalized code, null if language is null
+     */
+    @Nullable
+    public static String normalizeLanguage(@Nullable String language) {
+        return language != null ? Util.normalizeLanguageCode(language) : null;
+    }
+
+    /**
+     * @param trackType The C.TRACK_TYPE_* type
+     * @return The groups of the type, in the player order
+     */
+    public List<Tracks.Group> getGroups(int trackType) {
+        TypeIndex typeIndex = typeIndexes.get(trackType);
+        return typeIndex != null ? Collections.unmodifiableList(typeIndex.groups) : Collections.emptyList();
+    }
+
+    public boolean hasType(int trackType) {
+        return typeIndexes.containsKey(trackType);
+    }
+
+    /**
+     * @return The first group of the type whose format has the id, null if none
+     */
+    @Nullable
+    public Tracks.Group findById(int trackType, @Nullable String id) {
+        TypeIndex typeIndex = typeIndexes.get(trackType);
+        return typeIndex != null ? typeIndex.groupsById.get(id) : null;
+    }
+
+    /**
+     * @return The first group of the type whose format has the language, compared normalized, null if none
+     */
+    @Nullable
+    public Tracks.Group findByLanguage(int trackType, @Nullable String language) {
+        TypeIndex typeIndex = typeIndexes.get(trackType);
+        return typeIndex != null ? typeIndex.groupsByLanguage.get(normalizeLanguage(language)) : null;
+    }
+
+    /**
+     * @return The first group of the type with a selected track, null if none
+     */
+    @Nullable
+    public Tracks.Group getSelectedGroup(int trackType) {
+        TypeIndex typeIndex = typeIndexes.get(trackType);
+        return typeIndex != null ? typeIndex.selectedGroup : null;
+    }
+
+    /**
+     * @return The format of the selected track of the type, null if none
+     */
+    @Nullable
+    public Format getSelectedFormat(int trackType) {
+        TypeIndex typeIndex = typeIndexes.get(trackType);
+        if (typeIndex == null || typeIndex.selectedGroup == null) {
+            return null;
+        }
+        return typeIndex.selectedGroup.getTrackFormat(typeIndex.selectedTrackIndex);
+    }
+
+    /**
+     * @return The position of the selected group among the groups of the type, -1 if none
+     */
+    public int getSelectedGroupPosition(int trackType) {
+        TypeIndex typeIndex = typeIndexes.get(trackType);
+        return typeIndex != null ? typeIndex.selectedGroupPosition : -1;
+    }
+
+    /**
+     * @return The index of the selected track in the selected group of the type, -1 if none
+     */
+    public int getSelectedTrackIndex(int trackType) {
+        TypeIndex typeIndex = typeIndexes.get(trackType);
+        return typeIndex != null ? typeIndex.selectedTrackIndex : -1;
+    }
+}
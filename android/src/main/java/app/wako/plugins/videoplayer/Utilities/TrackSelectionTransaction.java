@@ -0,0 +1,121 @@
+package app.wako.plugins.videoplayer.Utilities;
+
+import androidx.media3.common.C;
+import androidx.media3.common.TrackSelectionOverride;
+import androidx.media3.common.util.UnstableApi;
+import androidx.media3.exoplayer.trackselection.DefaultTrackSelector;
+
+/**
+ * Accumulates audio, text and video track selection changes and applies them with a
+ * single setParameters call. Every setParameters runs a new track selection, which can
+ * reset renderers and flush buffers, so a switch touching several track types should
+ * commit once instead of once per change.
+ */
+@UnstableApi
+public final class TrackSelectionTransaction {
+
+    // Selection flags ignored when subtitles are disabled or enabled
+    public static final int SUBTITLES_DISABLED_FLAGS = C.SELECTION_FLAG_DEFAULT | C.SELECTION_FLAG_FORCED;
+    public static final int SUBTITLES_ENABLED_FLAGS = C.SELECTION_FLAG_DEFAULT;
+
+    private final DefaultTrackSelector trackSelector;
+    private final DefaultTrackSelector.Parameters.Builder parametersBuilder;
+    private boolean changed = false;
+
+    private TrackSelectionTransaction(DefaultTrackSelector trackSelector) {
+        this.trackSelector = trackSelector;
+        this.parametersBuilder = trackSelector.buildUponParameters();
+    }
+
+    /**
+     * Starts a transaction from the current parameters of the track selector.
+     *
+     * @param trackSelector The track selector of the player
+     * @return The transaction, applied by commit
+     */
+    public static TrackSelectionTransaction begin(DefaultTrackSelector trackSelector) {
+        return new TrackSelectionTransaction(trackSelector);
+    }
+
+    public TrackSelectionTransaction setPreferredAudioLanguage(String language) {
+        parametersBuilder.setPreferredAudioLanguage(language);
+        changed = true;
+        return this;
+    }
+
+    public TrackSelectionTransaction setPreferredTextLanguage(String language) {
+        parametersBuilder.setPreferredTextLanguage(language);
+        changed = true;
+        return this;
+    }
+
+    public TrackSelectionTransaction setSelectUndeterminedTextLanguage(boolean selectUndeterminedTextLanguage) {
+        parametersBuilder.setSelectUndeterminedTextLanguage(selectUndeterminedTextLanguage);
+        changed = true;
+        return this;
+    }
+
+    public TrackSelectionTransaction setIgnoredTextSelectionFlags(int ignoredTextSelectionFlags) {
+        parametersBuilder.setIgnoredTextSelectionFlags(ignoredTextSelectionFlags);
+        changed = true;
+        return this;
+    }
+
+    /**
+     * Stops the automatic selection of default and forced subtitles.
+     */
+    public TrackSelectionTransaction disableSubtitles() {
+        return setIgnoredTextSelectionFlags(SUBTITLES_DISABLED_FLAGS);
+    }
+
+    /**
+     * Lets the subtitles be selected again, default ones excepted.
+     */
+    public TrackSelectionTransaction enableSubtitles() {
+        return setIgnoredTextSelectionFlags(SUBTITLES_ENABLED_FLAGS);
+    }
+
+    public TrackSelectionTransaction setMaxVideoSize(int maxVideoWidth, int maxVideoHeight) {
+        parametersBuilder.setMaxVideoSize(maxVideoWidth, maxVideoHeight);
+        changed = true;
+        return this;
+    }
+
+    public TrackSelectionTransaction setMaxVideoBitrate(int maxVideoBitrate) {
+        parametersBuilder.setMaxVideoBitrate(maxVideoBitrate);
+        changed = true;
+        return this;
+    }
+
+    public TrackSelectionTransaction setTrackTypeDisabled(int trackType, boolean disabled) {
+        parametersBuilder.setTrackTypeDisabled(trackType, disabled);
+        changed = true;
+        return this;
+    }
+
+    public TrackSelectionTransaction setOverrideForType(TrackSelectionOverride override) {
+        parametersBuilder.setOverrideForType(override);
+        changed = true;
+        return this;
+    }
+
+    public TrackSelectionTransaction clearOverridesOfType(int trackType) {
+        parametersBuilder.clearOverridesOfType(trackType);
+        changed = true;
+        return this;
+    }
+
+    /**
+     * Applies every change at once, nothing is done when there is no change.
+     *
+     * @return Whether parameters were applied
+     */
+    public boolean commit() {
+        if (!changed) {
+            return false;
+        }
+        changed = false;
+        trackSelector.setParameters(parametersBuilder.build());
+        return true;
+    }
+}
@@ -39,126 +39,185 @@ public class TrackUtils {
         if (player == null || trackSelector == null) {
             return;
         }
-        Tracks tracks = player.getCurrentTracks();
+        TrackIndex trackIndex = TrackIndex.of(player);
+        // Every change below is applied by a single track selection at the end
+        TrackSelectionTransaction transaction = TrackSelectionTransaction.begin(trackSelector);
 
         boolean audioSelected = false;
         boolean subtitleSelected = false;
 
         // Select audio track
         if (!audioTrackId.isEmpty() || !audioLocale.isEmpty()) {
-            Format selectedFormat = null;
-
-            // First try to find by ID and check locale if specified
-            if (!audioTrackId.isEmpty()) {
-                for (Tracks.Group trackGroup : tracks.getGroups()) {
-                    if (trackGroup.getType() == C.TRACK_TYPE_AUDIO) {
-                        Format format = trackGroup.getMediaTrackGroup().getFormat(0);
-                        if (format.id != null && format.id.equals(audioTrackId)) {
-                            selectedFormat = format;
-                            break;
-                        }
-                    }
-                }
-            }
-
-            if (selectedFormat != null && !audioLocale.isEmpty() && !selectedFormat.language.equals(audioLocale)) {
-                selectedFormat = null;
-            }
-
-            // If not found and locale specified, try by locale only
-            if (selectedFormat == null && !audioLocale.isEmpty()) {
-                for (Tracks.Group trackGroup : tracks.getGroups()) {
-                    if (trackGroup.getType() == C.TRACK_TYPE_AUDIO) {
-                        Format format = trackGroup.getMediaTrackGroup().getFormat(0);
-                        if (format.language != null && format.language.equals(audioLocale)) {
-                            selectedFormat = format;
-                            break;
-                        }
-                    }
-                }
-            }
+            Format selectedFormat = getFirstFormat(findGroup(trackIndex, C.TRACK_TYPE_AUDIO, audioTrackId, audioLocale));
 
             // Apply the selected format if found
             if (selectedFormat != null) {
-                trackSelector.setParameters(trackSelector.buildUponParameters().setPreferredAudioLanguage(selectedFormat.language));
+                // A previous switchAudioTrack override must not take precedence over the language
+                transaction.clearOverridesOfType(C.TRACK_TYPE_AUDIO);
+                transaction.setPreferredAudioLanguage(selectedFormat.language);
                 audioSelected = true;
-                SubtitleUtils.disableSubtitles(trackSelector);
+                transaction.disableSubtitles();
             }
         }
 
-        // Select subtitle track
-        if (!subtitleTrackId.isEmpty() || !subtitleLocale.isEmpty()) {
-            Format selectedFormat = null;
-
-            // First try to find by ID and check locale if specified
-            if (!subtitleTrackId.isEmpty()) {
-
-                for (Tracks.Group trackGroup : tracks.getGroups()) {
-                    if (trackGroup.getType() == C.TRACK_TYPE_TEXT) {
-                        Format format = trackGroup.getMediaTrackGroup().getFormat(0);
-                        if (format.id != null && format.id.equals(subtitleTrackId)) {
-                            selectedFormat = format;
-                            break;
-                        }
-                    }
-                }
+        subtitleSelected = selectSubtitle(trackIndex, transaction, subtitleTrackId, subtitleLocale);
+
+        if (!audioSelected && !subtitleSelected && !preferredLocale.isEmpty()) {
+            // First try to find the audio with the same language
+            if (trackIndex.findByLanguage(C.TRACK_TYPE_AUDIO, preferredLocale) != null) {
+                // Audio track found, select it and disable subtitles
+                transaction.clearOverridesOfType(C.TRACK_TYPE_AUDIO);
+                transaction.setPreferredAudioLanguage(preferredLocale);
+                transaction.disableSubtitles();
+            } else if (trackIndex.findByLanguage(C.TRACK_TYPE_TEXT, preferredLocale) != null) {
+                // Then try to find the subtitle with the same language
+                transaction.setPreferredTextLanguage(preferredLocale);
             }
+        }
+
+        transaction.commit();
+    }
 
-            if (selectedFormat != null && !subtitleLocale.isEmpty() && !selectedFormat.language.equals(subtitleLocale)) {
-                selectedFormat = null;
+    /**
+     * Switches to the exact audio group found by id or language, together with the subtitle
+     * selection of the same request, in a single track selection that leaves the video
+     * untouched. The video selection is pinned to the tracks playing, so the player finds it
+     * unchanged, keeps the video stream and its buffer, and only recreates the audio stream,
+     * which loads from the current position. The pin is removed by unpinVideoSelection once
+     * the switch is done.
+     *
+     * @return The group switched to, null if not found or already selected, nothing is then applied
+     */
+    @OptIn(markerClass = UnstableApi.class)
+    public static Tracks.Group switchAudioTrack(
+            ExoPlayer player,
+            DefaultTrackSelector trackSelector,
+            String subtitleTrackId,
+            String subtitleLocale,
+            String audioTrackId,
+            String audioLocale
+    ) {
+        if (player == null || trackSelector == null) {
+            return null;
+        }
+        TrackIndex trackIndex = TrackIndex.of(player);
+        Tracks.Group group = findGroup(trackIndex, C.TRACK_TYPE_AUDIO, audioTrackId, audioLocale);
+        if (group == null || group.isSelected()) {
+            return null;
+        }
+        List<Integer> trackIndices = new ArrayList<>();
+        for (int i = 0; i < group.length; i++) {
+            if (group.isTrackSupported(i)) {
+                trackIndices.add(i);
             }
+        }
+        if (trackIndices.isEmpty()) {
+            return null;
+        }
+        TrackSelectionTransaction transaction = TrackSelectionTransaction.begin(trackSelector)
+                .setOverrideForType(new TrackSelectionOverride(group.getMediaTrackGroup(), trackIndices))
+                // Kept in line with the override for the next media items
+                .setPreferredAudioLanguage(group.getMediaTrackGroup().getFormat(0).language)
+                // As selectTracksOldWay does when an audio track is selected
+                .disableSubtitles();
+        pinVideoSelection(trackIndex, transaction);
+        selectSubtitle(trackIndex, transaction, subtitleTrackId, subtitleLocale);
+        transaction.commit();
+        return group;
+    }
 
-            // If not found and locale specified, try by locale only
-            if (selectedFormat == null && !subtitleLocale.isEmpty()) {
-                for (Tracks.Group trackGroup : tracks.getGroups()) {
-                    if (trackGroup.getType() == C.TRACK_TYPE_TEXT) {
-                        Format format = trackGroup.getMediaTrackGroup().getFormat(0);
-                        if (format.language != null && format.language.equals(subtitleLocale)) {
-                            selectedFormat = format;
-                            break;
-                        }
-                    }
-                }
+    /**
+     * Removes the video pin of switchAudioTrack. The video selection found without it is the
+     * one playing, so the player keeps the video stream.
+     */
+    @OptIn(markerClass = UnstableApi.class)
+    public static void unpinVideoSelection(DefaultTrackSelector trackSelector) {
+        if (trackSelector == null) {
+            return;
+        }
+        for (TrackSelectionOverride override : trackSelector.getParameters().overrides.values()) {
+            if (override.getType() == C.TRACK_TYPE_VIDEO) {
+                TrackSelectionTransaction.begin(trackSelector)
+                        .clearOverridesOfType(C.TRACK_TYPE_VIDEO)
+                        .commit();
+                return;
             }
+        }
+    }
+
+    /**
+     * Adds an override of the video tracks playing to a transaction. A reselection then gives
+     * a video selection equal to the current one, whose stream and buffer the player keeps.
+     */
+    @OptIn(markerClass = UnstableApi.class)
+    private static void pinVideoSelection(TrackIndex trackIndex, TrackSelectionTransaction transaction) {
+        Tracks.Group videoGroup = trackIndex.getSelectedGroup(C.TRACK_TYPE_VIDEO);
+        if (videoGroup == null) {
+            return;
+        }
+        List<Integer> trackIndices = new ArrayList<>();
+        for (int i = 0; i < videoGroup.length; i++) {
+            if (videoGroup.isTrackSelected(i)) {
+                trackIndices.add(i);
+            }
+        }
+        transaction.setOverrideForType(new TrackSelectionOverride(videoGroup.getMediaTrackGroup(), trackIndices));
+    }
+
+    /**
+     * Adds the subtitle selection by id and/or language to a transaction.
+     *
+     * @return Whether a subtitle track was found
+     */
+    @OptIn(markerClass = UnstableApi.class)
+    private static boolean selectSubtitle(TrackIndex trackIndex, TrackSelectionTransaction transaction, String subtitleTrackId, String subtitleLocale) {
+        boolean subtitleSelected = false;
+        if (!subtitleTrackId.isEmpty() || !subtitleLocale.isEmpty()) {
+            Format selectedFormat = getFirstFormat(findGroup(trackIndex, C.TRACK_TYPE_TEXT, subtitleTrackId, subtitleLocale));
 
             // Apply the selected format if found
             if (selectedFormat != null) {
-                trackSelector.setParameters((trackSelector).buildUponParameters().setPreferredTextLanguage(selectedFormat.language));
+                transaction.setPreferredTextLanguage(selectedFormat.language);
                 subtitleSelected = true;
             }
         }
 
         if (subtitleTrackId.equals(DISABLED_TRACK)) {
             // Disable subtitles
-            SubtitleUtils.disableSubtitles(trackSelector);
+            transaction.disableSubtitles();
         }
+        return subtitleSelected;
+    }
 
-        if (!audioSelected && !subtitleSelected && !preferredLocale.isEmpty()) {
-            // First try to find the audio with the same language
-            for (Tracks.Group trackGroup : tracks.getGroups()) {
-                if (trackGroup.getType() == C.TRACK_TYPE_AUDIO) {
-                    Format format = trackGroup.getMediaTrackGroup().getFormat(0);
-                    if (format.language != null && format.language.equals(preferredLocale)) {
-
-                        // Audio track found, select it and disable subtitles
-                        trackSelector.setParameters(trackSelector.buildUponParameters().setPreferredAudioLanguage(preferredLocale));
-                        SubtitleUtils.disableSubtitles(trackSelector);
-                        return;
-                    }
-                }
-            }
+    /**
+     * Finds a track by id, checking its language if one is given, or else by language only.
+     *
+     * @return The first group found, null if none matches
+     */
+    @OptIn(markerClass = UnstableApi.class)
+    private static Tracks.Group findGroup(TrackIndex trackIndex, int trackType, String trackId, String locale) {
+        Tracks.Group selectedGroup = null;
 
-            // Then try to find the subtitle with the same language
-            for (Tracks.Group trackGroup : tracks.getGroups()) {
-                if (trackGroup.getType() == C.TRACK_TYPE_TEXT) {
-                    Format format = trackGroup.getMediaTrackGroup().getFormat(0);
-                    if (format.language != null && format.language.equals(preferredLocale)) {
-                        trackSelector.setParameters(trackSelector.buildUponParameters().setPreferredTextLanguage(preferredLocale));
-                    }
-                }
-            }
+        // First try to find by ID and check locale if specified
+        if (!trackId.isEmpty()) {
+            selectedGroup = trackIndex.findById(trackType, trackId);
+        }
+
+        if (selectedGroup != null && !locale.isEmpty()
+                && !Objects.equals(TrackIndex.normalizeLanguage(getFirstFormat(selectedGroup).language), TrackIndex.normalizeLanguage(locale))) {
+            selectedGroup = null;
         }
 
+        // If not found and locale specified, try by locale only
+        if (selectedGroup == null && !locale.isEmpty()) {
+            selectedGroup = trackIndex.findByLanguage(trackType, locale);
+        }
+        return selectedGroup;
+    }
+
+    @OptIn(markerClass = UnstableApi.class)
+    private static Format getFirstFormat(Tracks.Group group) {
+        return group != null ? group.getMediaTrackGroup().getFormat(0) : null;
     }
 
     /**
@@ -270,16 +329,8 @@ public class TrackUtils {
         if ((id == null && trackType == C.TRACK_TYPE_AUDIO) || player == null) {
             return null;
         }
-        for (Tracks.Group group : player.getCurrentTracks().getGroups()) {
-            if (group.getType() == trackType) {
-                final TrackGroup trackGroup = group.getMediaTrackGroup();
-                final Format format = trackGroup.getFormat(0);
-                if (Objects.equals(id, format.id)) {
-                    return trackGroup;
-                }
-            }
-        }
-        return null;
+        Tracks.Group group = TrackIndex.of(player).findById(trackType, id);
+        return group != null ? group.getMediaTrackGroup() : null;
     }
 
     @OptIn(markerClass = UnstableApi.class)
@@ -287,37 +338,32 @@ public class TrackUtils {
         if ((locale == null && trackType == C.TRACK_TYPE_AUDIO) || player == null) {
             return null;
         }
-        for (Tracks.Group group : player.getCurrentTracks().getGroups()) {
-            if (group.getType() == trackType) {
-                final TrackGroup trackGroup = group.getMediaTrackGroup();
-                final Format format = trackGroup.getFormat(0);
-                if (Objects.equals(locale, format.language)) {
-                    return trackGroup;
-                }
-            }
-        }
-        return null;
+        Tracks.Group group = TrackIndex.of(player).findByLanguage(trackType, locale);
+        return group != null ? group.getMediaTrackGroup() : null;
     }
 
     @OptIn(markerClass = UnstableApi.class)
     public static void onTracksChanged(SubtitleManager subtitleManager, Tracks tracks) {
+        onTracksChanged(subtitleManager, tracks, null);
+    }
+
+    /**
+     * Posts the selected tracks as a playerTracksChanged notification.
+     *
+     * @param extraInfo Values added to the notification, like the measure of an audio switch, can be null
+     */
+    @OptIn(markerClass = UnstableApi.class)
+    public static void onTracksChanged(SubtitleManager subtitleManager, Tracks tracks, Map<String, Object> extraInfo) {
+        // Built once here for the new tracks, then reused by every selection path
+        TrackIndex trackIndex = TrackIndex.of(tracks);
+
         // Log current audio track
-        TrackGroup currentAudioTrack = null;
-        for (Tracks.Group trackGroup : tracks.getGroups()) {
-            if (trackGroup.isSelected() && trackGroup.getType() == C.TRACK_TYPE_AUDIO) {
-                currentAudioTrack = trackGroup.getMediaTrackGroup();
-                break;
-            }
-        }
+        Tracks.Group audioGroup = trackIndex.getSelectedGroup(C.TRACK_TYPE_AUDIO);
+        TrackGroup currentAudioTrack = audioGroup != null ? audioGroup.getMediaTrackGroup() : null;
 
         // Log current subtitle track
-        TrackGroup currentSubtitleTrack = null;
-        for (Tracks.Group trackGroup : tracks.getGroups()) {
-            if (trackGroup.isSelected() && trackGroup.getType() == C.TRACK_TYPE_TEXT) {
-                currentSubtitleTrack = trackGroup.getMediaTrackGroup();
-                break;
-            }
-        }
+        Tracks.Group subtitleGroup = trackIndex.getSelectedGroup(C.TRACK_TYPE_TEXT);
+        TrackGroup currentSubtitleTrack = subtitleGroup != null ? subtitleGroup.getMediaTrackGroup() : null;
 
 
         // Create event data
@@ -350,6 +396,9 @@ public class TrackUtils {
             subtitleInfo.put("id", TrackUtils.DISABLED_TRACK);
         }
         trackInfo.put("subtitleTrack", subtitleInfo);
+        if (extraInfo != null) {
+            trackInfo.putAll(extraInfo);
+        }
 
         NotificationCenter.defaultCenter().postNotification("playerTracksChanged", trackInfo);
 
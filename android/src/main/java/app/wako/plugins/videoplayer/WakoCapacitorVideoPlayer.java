@@ -1,19 +1,29 @@
 package app.wako.plugins.videoplayer;
 
 import android.content.Context;
+import android.net.Uri;
 
 import androidx.annotation.OptIn;
+import androidx.media3.common.MediaItem;
 import androidx.media3.common.util.UnstableApi;
 
 import com.getcapacitor.JSObject;
 
+import app.wako.plugins.videoplayer.Components.MediaCache;
+import app.wako.plugins.videoplayer.Components.PlayerPool;
 import app.wako.plugins.videoplayer.Components.SubtitleItem;
+import app.wako.plugins.videoplayer.Components.SubtitlePreparer;
+import app.wako.plugins.videoplayer.Utilities.HelperUtils;
 
 import java.util.ArrayList;
 
 public class WakoCapacitorVideoPlayer {
 
-    WakoCapacitorVideoPlayer(Context context) {}
+    private final Context context;
+
+    WakoCapacitorVideoPlayer(Context context) {
+        this.context = context;
+    }
 
     public String echo(String value) {
         return value;
@@ -35,7 +45,13 @@ public class WakoCapacitorVideoPlayer {
         String subtitleLocale,
         String audioTrackId,
         String audioLocale,
-        Long startAtSec
+        Long startAtSec,
+        Long cacheSizeMb,
+        String bufferProfile,
+        Long qoeIntervalMs,
+        Long timeUpdateIntervalMs,
+        Boolean lazySubtitles,
+        Boolean seamlessAudioSwitch
     ) {
         FullscreenExoPlayerFragment fsFragment = new FullscreenExoPlayerFragment();
 
@@ -54,8 +70,35 @@ public class WakoCapacitorVideoPlayer {
         fsFragment.audioTrackId = audioTrackId;
         fsFragment.audioLocale = audioLocale;
         fsFragment.startAtSec = startAtSec;
+        fsFragment.cacheSizeMb = cacheSizeMb;
+        fsFragment.bufferProfile = bufferProfile;
+        fsFragment.qoeIntervalMs = qoeIntervalMs;
+        fsFragment.timeUpdateIntervalMs = timeUpdateIntervalMs;
+        fsFragment.lazySubtitles = lazySubtitles;
+        fsFragment.seamlessAudioSwitch = seamlessAudioSwitch;
 
         return fsFragment;
     }
 
+    /**
+     * Starts loading a video in a paused player so that the next createFullScreenFragment
+     * call with the same url and subtitles can start playback without waiting for the network.
+     * Must be called on the main thread.
+     */
+    @OptIn(markerClass = UnstableApi.class)
+    public void preload(String videoUrl, ArrayList<SubtitleItem> subtitles, Long startAtSec, Long cacheSizeMb, String bufferProfile, PlayerPool.PreloadListener listener) {
+        Uri videoUri = Uri.parse(videoUrl);
+        MediaItem.Builder mediaItemBuilder = new MediaItem.Builder().setUri(videoUri).setMimeType(HelperUtils.getVideoType(videoUri));
+        long startPositionMs = startAtSec > 0 ? startAtSec * 1000 : 0;
+        String preloadKey = PlayerPool.buildPreloadKey(videoUrl, subtitles);
+        if (subtitles.isEmpty()) {
+            PlayerPool.preload(context, cacheSizeMb, bufferProfile, preloadKey, mediaItemBuilder.build(), startPositionMs, listener);
+            return;
+        }
+        SubtitlePreparer.prepare(context, MediaCache.buildDataSourceFactory(context, cacheSizeMb), subtitles, subtitleConfigurations -> {
+            mediaItemBuilder.setSubtitleConfigurations(subtitleConfigurations);
+            PlayerPool.preload(context, cacheSizeMb, bufferProfile, preloadKey, mediaItemBuilder.build(), startPositionMs, listener);
+        });
+    }
+
 }
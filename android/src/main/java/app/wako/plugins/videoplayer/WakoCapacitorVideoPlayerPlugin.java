@@ -7,6 +7,7 @@ import android.util.Log;
 import android.view.ViewGroup;
 import android.widget.FrameLayout;
 
+import com.getcapacitor.JSArray;
 import com.getcapacitor.JSObject;
 import com.getcapacitor.Plugin;
 import com.getcapacitor.PluginCall;
@@ -14,13 +15,21 @@ import com.getcapacitor.PluginMethod;
 import com.getcapacitor.annotation.CapacitorPlugin;
 import com.getcapacitor.annotation.Permission;
 
+import app.wako.plugins.videoplayer.Components.BandwidthEstimateStore;
+import app.wako.plugins.videoplayer.Components.BufferProfile;
+import app.wako.plugins.videoplayer.Components.MediaCache;
+import app.wako.plugins.videoplayer.Components.PlayerPool;
+import app.wako.plugins.videoplayer.Components.QoECollector;
+import app.wako.plugins.videoplayer.Components.StartupTracer;
 import app.wako.plugins.videoplayer.Components.SubtitleItem;
+import app.wako.plugins.videoplayer.Notifications.EventDispatcher;
 import app.wako.plugins.videoplayer.Notifications.MyRunnable;
 import app.wako.plugins.videoplayer.Notifications.NotificationCenter;
 import app.wako.plugins.videoplayer.Utilities.FragmentUtils;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import org.json.JSONArray;
@@ -62,6 +71,13 @@ public class WakoCapacitorVideoPlayerPlugin extends Plugin {
     private String audioTrackId;
     private String audioLocale;
     private long startAtSec;
+    private long cacheSizeMb = MediaCache.DEFAULT_CACHE_SIZE_MB;
+    private String bufferProfile = BufferProfile.AUTO;
+    private long qoeIntervalMs = QoECollector.DEFAULT_INTERVAL_MS;
+    private long timeUpdateIntervalMs = 0;
+    private boolean lazySubtitles = false;
+    private boolean seamlessAudioSwitch = true;
+    private final EventDispatcher eventDispatcher = new EventDispatcher(this::notifyListeners);
     private final JSObject ret = new JSObject();
 
     @Override
@@ -70,6 +86,8 @@ public class WakoCapacitorVideoPlayerPlugin extends Plugin {
         this.context = getContext();
         implementation = new WakoCapacitorVideoPlayer(this.context);
         this.fragmentUtils = new FragmentUtils(getBridge());
+        // Read the stored bandwidth estimates before the first player is created
+        BandwidthEstimateStore.warmUp(this.context);
     }
 
 
@@ -84,6 +102,7 @@ public class WakoCapacitorVideoPlayerPlugin extends Plugin {
 
     @PluginMethod
     public void initPlayer(PluginCall call) {
+        StartupTracer.begin();
         this.call = call;
         ret.put("method", "initPlayer");
         ret.put("result", false);
@@ -114,22 +133,7 @@ public class WakoCapacitorVideoPlayerPlugin extends Plugin {
         }
 
         // Reset subtitles for each new video
-        subtitles = null;
-
-        if (call.getData().has("subtitles")) {
-            try {
-                subtitles = call.getArray("subtitles");
-            } catch (Exception e) {
-                // Handle case where subtitles is not an array (for backward compatibility)
-                String oldSubtitleUrl = call.getString("subtitles");
-                if (oldSubtitleUrl != null && !oldSubtitleUrl.isEmpty()) {
-                    subtitles = new JSONArray();
-                    JSObject subtitleObj = new JSObject();
-                    subtitleObj.put("url", oldSubtitleUrl);
-                    subtitles.put(subtitleObj);
-                }
-            }
-        }
+        subtitles = getSubtitlesOption(call);
         if (call.getData().has("preferredLocale")) {
             preferredLocale = call.getString("preferredLocale");
         }
@@ -185,6 +189,50 @@ public class WakoCapacitorVideoPlayerPlugin extends Plugin {
             startAtSec = call.getInt("startAtSec", 0);
         }
 
+        cacheSizeMb = MediaCache.DEFAULT_CACHE_SIZE_MB;
+        if (call.getData().has("cacheSizeMb")) {
+            cacheSizeMb = Math.max(0, call.getInt("cacheSizeMb", (int) MediaCache.DEFAULT_CACHE_SIZE_MB));
+        }
+
+        bufferProfile = BufferProfile.AUTO;
+        if (call.getData().has("bufferProfile")) {
+            bufferProfile = call.getString("bufferProfile", BufferProfile.AUTO);
+        }
+
+        qoeIntervalMs = QoECollector.DEFAULT_INTERVAL_MS;
+        if (call.getData().has("qoeIntervalMs")) {
+            qoeIntervalMs = Math.max(0, call.getInt("qoeIntervalMs", (int) QoECollector.DEFAULT_INTERVAL_MS));
+        }
+
+        timeUpdateIntervalMs = 0;
+        if (call.getData().has("timeUpdateIntervalMs")) {
+            timeUpdateIntervalMs = Math.max(0, call.getInt("timeUpdateIntervalMs", 0));
+        }
+
+        lazySubtitles = false;
+        if (call.getData().has("lazySubtitles")) {
+            lazySubtitles = call.getBoolean("lazySubtitles", false);
+        }
+
+        seamlessAudioSwitch = true;
+        if (call.getData().has("seamlessAudioSwitch")) {
+            seamlessAudioSwitch = call.getBoolean("seamlessAudioSwitch", true);
+        }
+
+        long eventCoalescingMs = 0;
+        if (call.getData().has("eventCoalescingMs")) {
+            eventCoalescingMs = call.getInt("eventCoalescingMs", 0);
+        }
+        boolean eventBatching = false;
+        if (call.getData().has("eventBatching")) {
+            eventBatching = call.getBoolean("eventBatching", false);
+        }
+        eventDispatcher.configure(eventCoalescingMs, eventBatching);
+
+        if (call.getData().has("playerPoolSize")) {
+            final int playerPoolSize = call.getInt("playerPoolSize", PlayerPool.DEFAULT_POOL_SIZE);
+            bridge.getActivity().runOnUiThread(() -> PlayerPool.setMaxPoolSize(playerPoolSize));
+        }
 
         AddObserversToNotificationCenter();
         Log.v(TAG, "display url: " + url);
@@ -194,6 +242,8 @@ public class WakoCapacitorVideoPlayerPlugin extends Plugin {
         Log.v(TAG, "smallTitle: " + smallTitle);
         Log.v(TAG, "chromecast: " + chromecast);
         Log.v(TAG, "artwork: " + artwork);
+        Log.v(TAG, "cacheSizeMb: " + cacheSizeMb);
+        Log.v(TAG, "bufferProfile: " + bufferProfile);
 
         _initPlayer(call);
 
@@ -748,6 +798,368 @@ public class WakoCapacitorVideoPlayerPlugin extends Plugin {
                 );
     }
 
+    @PluginMethod
+    public void execute(final PluginCall call) {
+        JSObject ret = new JSObject();
+        ret.put("method", "execute");
+        final JSONArray commands = call.getArray("commands");
+        if (commands == null) {
+            ret.put("result", false);
+            ret.put("message", "Must provide a commands array");
+            call.resolve(ret);
+            return;
+        }
+        bridge
+                .getActivity()
+                .runOnUiThread(
+                        new Runnable() {
+                            @Override
+                            public void run() {
+                                if (fsFragment == null) {
+                                    ret.put("result", false);
+                                    ret.put("message", "Fullscreen fragment is not defined");
+                                    call.resolve(ret);
+                                    return;
+                                }
+                                // All commands are applied in this single pass, in the given order
+                                JSArray results = new JSArray();
+                                boolean allSucceeded = true;
+                                for (int i = 0; i < commands.length(); i++) {
+                                    JSObject result = executeCommand(commands.optJSONObject(i));
+                                    allSucceeded &= result.getBool("result");
+                                    results.put(result);
+                                }
+                                ret.put("result", allSucceeded);
+                                ret.put("value", results);
+                                call.resolve(ret);
+                            }
+                        }
+                );
+    }
+
+    @PluginMethod
+    public void selectExternalSubtitle(final PluginCall call) {
+        JSObject ret = new JSObject();
+        ret.put("method", "selectExternalSubtitle");
+        final String subtitleUrl = call.getString("url");
+        if (subtitleUrl == null) {
+            ret.put("result", false);
+            ret.put("message", "Must provide a subtitle url");
+            call.resolve(ret);
+            return;
+        }
+        bridge
+                .getActivity()
+                .runOnUiThread(
+                        new Runnable() {
+                            @Override
+                            public void run() {
+                                JSObject ret = new JSObject();
+                                ret.put("method", "selectExternalSubtitle");
+                                if (fsFragment == null) {
+                                    ret.put("result", false);
+                                    ret.put("message", "Fullscreen fragment is not defined");
+                                } else if (fsFragment.selectExternalSubtitle(subtitleUrl)) {
+                                    ret.put("result", true);
+                                    ret.put("value", subtitleUrl);
+                                } else {
+                                    ret.put("result", false);
+                                    ret.put("message", "Unknown subtitle url: " + subtitleUrl);
+                                }
+                                call.resolve(ret);
+                            }
+                        }
+                );
+    }
+
+    @PluginMethod
+    public void setSubtitleOffset(final PluginCall call) {
+        JSObject ret = new JSObject();
+        ret.put("method", "setSubtitleOffset");
+        final Double offsetMs = call.getDouble("ms");
+        if (offsetMs == null) {
+            ret.put("result", false);
+            ret.put("message", "Must provide an offset in ms");
+            call.resolve(ret);
+            return;
+        }
+        bridge
+                .getActivity()
+                .runOnUiThread(
+                        new Runnable() {
+                            @Override
+                            public void run() {
+                                JSObject ret = new JSObject();
+                                ret.put("method", "setSubtitleOffset");
+                                if (fsFragment != null) {
+                                    fsFragment.setSubtitleOffset(Math.round(offsetMs));
+                                    ret.put("value", Math.round(offsetMs));
+                                    ret.put("result", true);
+                                } else {
+                                    ret.put("result", false);
+                                    ret.put("message", "Fullscreen fragment is not defined");
+                                }
+                                call.resolve(ret);
+                            }
+                        }
+                );
+    }
+
+    @PluginMethod
+    public void setSubtitleRate(final PluginCall call) {
+        JSObject ret = new JSObject();
+        ret.put("method", "setSubtitleRate");
+        final Float subtitleRate = call.getFloat("rate");
+        if (subtitleRate == null) {
+            ret.put("result", false);
+            ret.put("message", "Must provide a rate value");
+            call.resolve(ret);
+            return;
+        }
+        bridge
+                .getActivity()
+                .runOnUiThread(
+                        new Runnable() {
+                            @Override
+                            public void run() {
+                                JSObject ret = new JSObject();
+                                ret.put("method", "setSubtitleRate");
+                                if (fsFragment != null) {
+                                    ret.put("value", fsFragment.setSubtitleRate(subtitleRate));
+                                    ret.put("result", true);
+                                } else {
+                                    ret.put("result", false);
+                                    ret.put("message", "Fullscreen fragment is not defined");
+                                }
+                                call.resolve(ret);
+                            }
+                        }
+                );
+    }
+
+    @PluginMethod
+    public void getState(final PluginCall call) {
+        bridge
+                .getActivity()
+                .runOnUiThread(
+                        new Runnable() {
+                            @Override
+                            public void run() {
+                                JSObject ret = new JSObject();
+                                ret.put("method", "getState");
+                                if (fsFragment != null) {
+                                    ret.put("result", true);
+                                    ret.put("value", toJSObject(fsFragment.getState()));
+                                } else {
+                                    ret.put("result", false);
+                                    ret.put("message", "Fullscreen fragment is not defined");
+                                }
+                                call.resolve(ret);
+                            }
+                        }
+                );
+    }
+
+    /**
+     * Applies one command of an execute call. Must run on the UI thread.
+     */
+    private JSObject executeCommand(JSONObject command) {
+        JSObject result = new JSObject();
+        result.put("result", false);
+        if (command == null) {
+            result.put("message", "Command must be an object");
+            return result;
+        }
+        String method = command.optString("method");
+        result.put("method", method);
+        try {
+            switch (method) {
+                case "play":
+                    fsFragment.play();
+                    break;
+                case "pause":
+                    fsFragment.pause();
+                    break;
+                case "setCurrentTime":
+                    if (!command.has("seektime")) {
+                        result.put("message", "Must provide a time in second");
+                        return result;
+                    }
+                    int cTime = (int) Math.round(command.getDouble("seektime"));
+                    fsFragment.setCurrentTime(cTime);
+                    result.put("value", cTime);
+                    break;
+                case "setVolume":
+                    if (!command.has("volume")) {
+                        result.put("message", "Must provide a volume value");
+                        return result;
+                    }
+                    float volume = (float) command.getDouble("volume");
+                    fsFragment.setVolume(volume);
+                    result.put("value", volume);
+                    break;
+                case "setMuted":
+                    if (!command.has("muted")) {
+                        result.put("message", "Must provide a boolean true/false");
+                        return result;
+                    }
+                    boolean muted = command.getBoolean("muted");
+                    fsFragment.setMuted(muted);
+                    result.put("value", muted);
+                    break;
+                case "setRate":
+                    if (!command.has("rate")) {
+                        result.put("message", "Must provide a rate value");
+                        return result;
+                    }
+                    float rate = (float) command.getDouble("rate");
+                    videoRate = isInRate(rateList, rate) ? rate : 1f;
+                    fsFragment.setRate(videoRate);
+                    result.put("value", videoRate);
+                    break;
+                case "selectTracks":
+                    fsFragment.selectTracks(
+                            command.optString("subtitleTrackId"),
+                            command.optString("subtitleLocale"),
+                            command.optString("audioTrackId"),
+                            command.optString("audioLocale")
+                    );
+                    break;
+                case "selectExternalSubtitle":
+                    String subtitleUrl = command.optString("url");
+                    if (!fsFragment.selectExternalSubtitle(subtitleUrl)) {
+                        result.put("message", "Unknown subtitle url: " + subtitleUrl);
+                        return result;
+                    }
+                    result.put("value", subtitleUrl);
+                    break;
+                case "setSubtitleOffset":
+                    if (!command.has("ms")) {
+                        result.put("message", "Must provide an offset in ms");
+                        return result;
+                    }
+                    long offsetMs = Math.round(command.getDouble("ms"));
+                    fsFragment.setSubtitleOffset(offsetMs);
+                    result.put("value", offsetMs);
+                    break;
+                case "setSubtitleRate":
+                    if (!command.has("rate")) {
+                        result.put("message", "Must provide a rate value");
+                        return result;
+                    }
+                    result.put("value", fsFragment.setSubtitleRate((float) command.getDouble("rate")));
+                    break;
+                case "isPlaying":
+                    result.put("value", fsFragment.isPlaying());
+                    break;
+                case "getCurrentTime":
+                    result.put("value", fsFragment.getCurrentTime());
+                    break;
+                case "getDuration":
+                    result.put("value", fsFragment.getDuration());
+                    break;
+                case "getVolume":
+                    result.put("value", fsFragment.getVolume());
+                    break;
+                case "getMuted":
+                    result.put("value", fsFragment.getMuted());
+                    break;
+                case "getRate":
+                    result.put("value", fsFragment.getRate());
+                    break;
+                default:
+                    result.put("message", "Unknown command: " + method);
+                    return result;
+            }
+            result.put("result", true);
+        } catch (Exception e) {
+            Log.e(TAG, "Error executing command " + method, e);
+            result.put("message", "Error during " + method + ": " + e.getMessage());
+        }
+        return result;
+    }
+
+    @PluginMethod
+    public void getCacheStats(PluginCall call) {
+        JSObject ret = new JSObject();
+        ret.put("method", "getCacheStats");
+        ret.put("result", true);
+        ret.put("value", toJSObject(MediaCache.getStats()));
+        call.resolve(ret);
+    }
+
+    @PluginMethod
+    public void preload(final PluginCall call) {
+        JSObject ret = new JSObject();
+        ret.put("method", "preload");
+        final String preloadUrl = call.getString("url");
+        if (preloadUrl == null) {
+            ret.put("result", false);
+            ret.put("message", "Must provide an url");
+            call.resolve(ret);
+            return;
+        }
+        final ArrayList<SubtitleItem> subtitleItems = parseSubtitleItems(getSubtitlesOption(call));
+        final long preloadStartAtSec = call.getInt("startAtSec", 0);
+        bridge
+                .getActivity()
+                .runOnUiThread(
+                        new Runnable() {
+                            @Override
+                            public void run() {
+                                try {
+                                    // Resolved once the source is prepared, or when it failed
+                                    implementation.preload(preloadUrl, subtitleItems, preloadStartAtSec, cacheSizeMb, bufferProfile, new PlayerPool.PreloadListener() {
+                                        @Override
+                                        public void onPreloaded() {
+                                            ret.put("result", true);
+                                            call.resolve(ret);
+                                        }
+
+                                        @Override
+                                        public void onPreloadError(String message) {
+                                            ret.put("result", false);
+                                            ret.put("message", "preload failed: " + message);
+                                            call.resolve(ret);
+                                        }
+                                    });
+                                } catch (Exception e) {
+                                    Log.e(TAG, "Error preloading video", e);
+                                    ret.put("result", false);
+                                    ret.put("message", "preload command failed: " + e.getMessage());
+                                    call.resolve(ret);
+                                }
+                            }
+                        }
+                );
+    }
+
+    @Override
+    protected void handleOnDestroy() {
+        super.handleOnDestroy();
+        eventDispatcher.cancel();
+        PlayerPool.releaseAll();
+        MediaCache.release();
+    }
+
+    @SuppressWarnings("unchecked")
+    private JSObject toJSObject(Map<String, Object> info) {
+        JSObject data = new JSObject();
+        for (Map.Entry<String, Object> entry : info.entrySet()) {
+            Object value = entry.getValue();
+            if (value instanceof List) {
+                // Lists of maps, like the external subtitles of getState
+                JSArray array = new JSArray();
+                for (Object item : (List<Object>) value) {
+                    array.put(item instanceof Map ? toJSObject((Map<String, Object>) item) : item);
+                }
+                value = array;
+            }
+            data.put(entry.getKey(), value);
+        }
+        return data;
+    }
+
     private boolean isTvDevice(Context context) {
         try {
             boolean isTelevision = context.getPackageManager().hasSystemFeature(PackageManager.FEATURE_LEANBACK);
@@ -765,24 +1177,26 @@ public class WakoCapacitorVideoPlayerPlugin extends Plugin {
         }
     }
 
-    private void _initPlayer(PluginCall call) {
-        // get the videoPath
-        videoUrl = url;
-
-        if (videoUrl == null) {
-            Map<String, Object> info = new HashMap<String, Object>() {
-                {
-                    put("dismiss", "1");
-                    put("currentTime", "0");
+    private JSONArray getSubtitlesOption(PluginCall call) {
+        JSONArray subtitles = null;
+        if (call.getData().has("subtitles")) {
+            try {
+                subtitles = call.getArray("subtitles");
+            } catch (Exception e) {
+                // Handle case where subtitles is not an array (for backward compatibility)
+                String oldSubtitleUrl = call.getString("subtitles");
+                if (oldSubtitleUrl != null && !oldSubtitleUrl.isEmpty()) {
+                    subtitles = new JSONArray();
+                    JSObject subtitleObj = new JSObject();
+                    subtitleObj.put("url", oldSubtitleUrl);
+                    subtitles.put(subtitleObj);
                 }
-            };
-            NotificationCenter.defaultCenter().postNotification("playerFullscreenDismiss", info);
-            ret.put("message", "initPlayer command failed: Video file not found");
-            call.resolve(ret);
-            return;
+            }
         }
+        return subtitles;
+    }
 
-        // get the subTitlePath if any
+    private ArrayList<SubtitleItem> parseSubtitleItems(JSONArray subtitles) {
         ArrayList<SubtitleItem> subtitleItems = new ArrayList<>();
         if (subtitles != null && subtitles.length() > 0) {
             for (int i = 0; i < subtitles.length(); i++) {
@@ -813,6 +1227,28 @@ public class WakoCapacitorVideoPlayerPlugin extends Plugin {
                 }
             }
         }
+        return subtitleItems;
+    }
+
+    private void _initPlayer(PluginCall call) {
+        // get the videoPath
+        videoUrl = url;
+
+        if (videoUrl == null) {
+            Map<String, Object> info = new HashMap<String, Object>() {
+                {
+                    put("dismiss", "1");
+                    put("currentTime", "0");
+                }
+            };
+            NotificationCenter.defaultCenter().postNotification("playerFullscreenDismiss", info);
+            ret.put("message", "initPlayer command failed: Video file not found");
+            call.resolve(ret);
+            return;
+        }
+
+        // get the subTitlePath if any
+        ArrayList<SubtitleItem> subtitleItems = parseSubtitleItems(subtitles);
         Log.v(TAG, "*** calculated videoPath: " + videoUrl);
         Log.v(TAG, "*** parsed " + subtitleItems.size() + " subtitles");
 
@@ -832,7 +1268,13 @@ public class WakoCapacitorVideoPlayerPlugin extends Plugin {
                         subtitleLocale,
                         audioTrackId,
                         audioLocale,
-                        startAtSec
+                        startAtSec,
+                        cacheSizeMb,
+                        bufferProfile,
+                        qoeIntervalMs,
+                        timeUpdateIntervalMs,
+                        lazySubtitles,
+                        seamlessAudioSwitch
                 );
 
 
@@ -889,11 +1331,11 @@ public class WakoCapacitorVideoPlayerPlugin extends Plugin {
                         "playerItemPlay",
                         new MyRunnable() {
                             @Override
-                            public void run() {
+                            public void run(Map<String, Object> info) {
                                 JSObject data = new JSObject();
-                                data.put("fromPlayerId", this.getInfo().get("fromPlayerId"));
-                                data.put("currentTime", this.getInfo().get("currentTime"));
-                                notifyListeners("playerPlay", data);
+                                data.put("fromPlayerId", info.get("fromPlayerId"));
+                                data.put("currentTime", info.get("currentTime"));
+                                eventDispatcher.dispatch("playerPlay", data);
                             }
                         }
                 );
@@ -903,10 +1345,10 @@ public class WakoCapacitorVideoPlayerPlugin extends Plugin {
                         "playerItemPause",
                         new MyRunnable() {
                             @Override
-                            public void run() {
+                            public void run(Map<String, Object> info) {
                                 JSObject data = new JSObject();
-                                data.put("currentTime", this.getInfo().get("currentTime"));
-                                notifyListeners("playerPause", data);
+                                data.put("currentTime", info.get("currentTime"));
+                                eventDispatcher.dispatch("playerPause", data);
                             }
                         }
                 );
@@ -916,10 +1358,14 @@ public class WakoCapacitorVideoPlayerPlugin extends Plugin {
                         "playerStateReady",
                         new MyRunnable() {
                             @Override
-                            public void run() {
+                            public void run(Map<String, Object> info) {
                                 JSObject data = new JSObject();
-                                data.put("currentTime", this.getInfo().get("currentTime"));
-                                notifyListeners("playerReady", data);
+                                data.put("currentTime", info.get("currentTime"));
+                                if (info.containsKey("bandwidthEstimate")) {
+                                    data.put("bandwidthEstimate", info.get("bandwidthEstimate"));
+                                    data.put("storedBandwidthEstimate", info.get("storedBandwidthEstimate"));
+                                }
+                                eventDispatcher.dispatch("playerReady", data);
                             }
                         }
                 );
@@ -929,9 +1375,9 @@ public class WakoCapacitorVideoPlayerPlugin extends Plugin {
                         "playerStateEnd",
                         new MyRunnable() {
                             @Override
-                            public void run() {
+                            public void run(Map<String, Object> info) {
                                 final JSObject data = new JSObject();
-                                data.put("currentTime", this.getInfo().get("currentTime"));
+                                data.put("currentTime", info.get("currentTime"));
                                 bridge
                                         .getActivity()
                                         .runOnUiThread(
@@ -946,7 +1392,7 @@ public class WakoCapacitorVideoPlayerPlugin extends Plugin {
                                                         }
                                                         fsFragment = null;
                                                         NotificationCenter.defaultCenter().removeAllNotifications();
-                                                        notifyListeners("playerEnded", data);
+                                                        eventDispatcher.dispatch("playerEnded", data);
                                                     }
                                                 }
                                         );
@@ -959,13 +1405,16 @@ public class WakoCapacitorVideoPlayerPlugin extends Plugin {
                         "playerFullscreenDismiss",
                         new MyRunnable() {
                             @Override
-                            public void run() {
+                            public void run(Map<String, Object> info) {
                                 boolean ret = false;
                                 final JSObject data = new JSObject();
-                                if (Integer.valueOf((String) this.getInfo().get("dismiss")) == 1)
+                                if (Integer.valueOf((String) info.get("dismiss")) == 1)
                                     ret = true;
                                 data.put("dismiss", ret);
-                                data.put("currentTime", this.getInfo().get("currentTime"));
+                                data.put("currentTime", info.get("currentTime"));
+                                if (info.containsKey("qoe")) {
+                                    data.put("qoe", toJSObject((Map<String, Object>) info.get("qoe")));
+                                }
                                 bridge
                                         .getActivity()
                                         .runOnUiThread(
@@ -980,7 +1429,7 @@ public class WakoCapacitorVideoPlayerPlugin extends Plugin {
                                                         }
                                                         fsFragment = null;
                                                         NotificationCenter.defaultCenter().removeAllNotifications();
-                                                        notifyListeners("playerExit", data);
+                                                        eventDispatcher.dispatch("playerExit", data);
                                                     }
                                                 }
                                         );
@@ -994,10 +1443,8 @@ public class WakoCapacitorVideoPlayerPlugin extends Plugin {
                         "playerTracksChanged",
                         new MyRunnable() {
                             @Override
-                            public void run() {
+                            public void run(Map<String, Object> info) {
                                 JSObject data = new JSObject();
-                                Map<String, Object> info = this.getInfo();
-
                                 data.put("fromPlayerId", info.get("fromPlayerId"));
 
                                 if (info.containsKey("audioTrack")) {
@@ -1025,7 +1472,46 @@ public class WakoCapacitorVideoPlayerPlugin extends Plugin {
                                     data.put("subtitleTrack", subtitleTrack);
                                 }
 
-                                notifyListeners("playerTracksChanged", data);
+                                if (info.containsKey("audioSwitchLatencyMs")) {
+                                    data.put("audioSwitchLatencyMs", info.get("audioSwitchLatencyMs"));
+                                    data.put("audioSwitchRebuffered", info.get("audioSwitchRebuffered"));
+                                    data.put("audioSwitchVideoKept", info.get("audioSwitchVideoKept"));
+                                }
+
+                                eventDispatcher.dispatch("playerTracksChanged", data);
+                            }
+                        }
+                );
+        NotificationCenter
+                .defaultCenter()
+                .addMethodForNotification(
+                        "playerStartupMetrics",
+                        new MyRunnable() {
+                            @Override
+                            public void run(Map<String, Object> info) {
+                                eventDispatcher.dispatch("playerStartupMetrics", toJSObject(info));
+                            }
+                        }
+                );
+        NotificationCenter
+                .defaultCenter()
+                .addMethodForNotification(
+                        "playerQoE",
+                        new MyRunnable() {
+                            @Override
+                            public void run(Map<String, Object> info) {
+                                eventDispatcher.dispatch("playerQoE", toJSObject(info));
+                            }
+                        }
+                );
+        NotificationCenter
+                .defaultCenter()
+                .addMethodForNotification(
+                        "playerTimeUpdate",
+                        new MyRunnable() {
+                            @Override
+                            public void run(Map<String, Object> info) {
+                                eventDispatcher.dispatch("playerTimeUpdate", toJSObject(info));
                             }
                         }
                 );
@@ -0,0 +1,80 @@
+package app.wako.plugins.videoplayer.Components;
+
+import static org.junit.Assert.*;
+
+import androidx.media3.common.text.Cue;
+import androidx.media3.extractor.text.CuesWithTiming;
+
+import org.junit.Test;
+
+import java.util.Collections;
+
+/**
+ * Local unit tests of the offset and rate math of {@link SubtitleRetimer}.
+ */
+public class SubtitleRetimerTest {
+
+    @Test
+    public void toSubtitleTimeUs_appliesOffset() {
+        assertEquals(5_000_000, SubtitleRetimer.toSubtitleTimeUs(5_000_000, 0, 1f));
+        // Delayed subtitles show earlier times of the file
+        assertEquals(3_000_000, SubtitleRetimer.toSubtitleTimeUs(5_000_000, 2000, 1f));
+        assertEquals(7_000_000, SubtitleRetimer.toSubtitleTimeUs(5_000_000, -2000, 1f));
+        assertEquals(-1_000_000, SubtitleRetimer.toSubtitleTimeUs(1_000_000, 2000, 1f));
+    }
+
+    @Test
+    public void toSubtitleTimeUs_appliesRate() {
+        assertEquals(5_000_000, SubtitleRetimer.toSubtitleTimeUs(10_000_000, 0, 2f));
+        assertEquals(6_000_000, SubtitleRetimer.toSubtitleTimeUs(3_000_000, 0, 0.5f));
+        // The offset is applied to the position, before the rate
+        assertEquals(4_500_000, SubtitleRetimer.toSubtitleTimeUs(10_000_000, 1000, 2f));
+        assertEquals(-2_000_000, SubtitleRetimer.toSubtitleTimeUs(0, 1000, 0.5f));
+    }
+
+    @Test
+    public void toSubtitleTimeUs_keepsPrecisionOnLongVideos() {
+        // Two hours, where a float division would be off by hundreds of microseconds
+        assertEquals(5_759_200_800L, SubtitleRetimer.toSubtitleTimeUs(7_200_001_000L, 1000, 1.25f));
+    }
+
+    @Test
+    public void toPositionUs_isInverseOfToSubtitleTimeUs() {
+        long[] positionsUs = {0, 1_500_000, 7_200_000_000L};
+        long[] offsetsMs = {0, 2500, -2500};
+        float[] rates = {0.5f, 1f, 1.25f, 2f};
+        for (long positionUs : positionsUs) {
+            for (long offsetMs : offsetsMs) {
+                for (float rate : rates) {
+                    long subtitleTimeUs = SubtitleRetimer.toSubtitleTimeUs(positionUs, offsetMs, rate);
+                    assertEquals("position " + positionUs + ", offset " + offsetMs + ", rate " + rate,
+                            positionUs, SubtitleRetimer.toPositionUs(subtitleTimeUs, offsetMs, rate));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void clampRate_limitsToRange() {
+        assertEquals(SubtitleRetimer.MIN_RATE, SubtitleRetimer.clampRate(0.1f), 0f);
+        assertEquals(SubtitleRetimer.MAX_RATE, SubtitleRetimer.clampRate(3f), 0f);
+        assertEquals(1.5f, SubtitleRetimer.clampRate(1.5f), 0f);
+    }
+
+    @Test
+    public void retimedCueCrossingZero() {
+        SubtitleTimeline.register("test://retimed", null, Collections.singletonList(
+                new CuesWithTiming(Collections.singletonList(new Cue.Builder().setText("a").build()), 0, 1_000_000)));
+        SubtitleTimeline timeline = SubtitleTimeline.get("test://retimed");
+
+        // Shown 500ms earlier: the cue is already half displayed when playback starts
+        long subtitleTimeUs = SubtitleRetimer.toSubtitleTimeUs(0, -500, 1f);
+        assertEquals(1, timeline.getCuesAt(subtitleTimeUs).size());
+        assertEquals(500_000, SubtitleRetimer.toPositionUs(timeline.getNextChangeTimeUs(subtitleTimeUs), -500, 1f));
+
+        // Shown 500ms later: nothing before the cue, which appears at 500ms
+        subtitleTimeUs = SubtitleRetimer.toSubtitleTimeUs(0, 500, 1f);
+        assertTrue(timeline.getCuesAt(subtitleTimeUs).isEmpty());
+        assertEquals(500_000, SubtitleRetimer.toPositionUs(timeline.getNextChangeTimeUs(subtitleTimeUs), 500, 1f));
+    }
+}
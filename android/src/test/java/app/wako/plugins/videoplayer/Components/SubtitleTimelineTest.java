@@ -0,0 +1,99 @@
+package app.wako.plugins.videoplayer.Components;
+
+import static org.junit.Assert.*;
+
+import androidx.media3.common.C;
+import androidx.media3.common.text.Cue;
+import androidx.media3.extractor.text.CuesWithTiming;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Local unit tests of the cue lookups of {@link SubtitleTimeline}.
+ */
+public class SubtitleTimelineTest {
+
+    private static CuesWithTiming cues(String text, long startTimeUs, long durationUs) {
+        return new CuesWithTiming(Collections.singletonList(new Cue.Builder().setText(text).build()), startTimeUs, durationUs);
+    }
+
+    private static SubtitleTimeline timeline(String url, CuesWithTiming... cues) {
+        SubtitleTimeline.register(url, null, Arrays.asList(cues));
+        return SubtitleTimeline.get(url);
+    }
+
+    private static List<String> texts(List<Cue> cues) {
+        List<String> texts = new ArrayList<>();
+        for (Cue cue : cues) {
+            texts.add(cue.text.toString());
+        }
+        return texts;
+    }
+
+    @Test
+    public void getCuesAt_returnsCuesDisplayedAtTime() {
+        SubtitleTimeline timeline = timeline("test://sequential",
+                cues("a", 1_000_000, 1_000_000),
+                cues("b", 3_000_000, 1_000_000));
+
+        assertEquals(Collections.emptyList(), texts(timeline.getCuesAt(500_000)));
+        assertEquals(Collections.singletonList("a"), texts(timeline.getCuesAt(1_000_000)));
+        assertEquals(Collections.singletonList("a"), texts(timeline.getCuesAt(1_999_999)));
+        assertEquals(Collections.emptyList(), texts(timeline.getCuesAt(2_000_000)));
+        assertEquals(Collections.singletonList("b"), texts(timeline.getCuesAt(3_500_000)));
+        assertEquals(Collections.emptyList(), texts(timeline.getCuesAt(4_000_000)));
+    }
+
+    @Test
+    public void getCuesAt_keepsFileOrderOfOverlappingCues() {
+        // Registered out of order, a long cue still displayed under a short one
+        SubtitleTimeline timeline = timeline("test://overlapping",
+                cues("b", 2_000_000, 1_000_000),
+                cues("a", 1_000_000, 5_000_000));
+
+        assertEquals(Arrays.asList("a", "b"), texts(timeline.getCuesAt(2_500_000)));
+        assertEquals(Collections.singletonList("a"), texts(timeline.getCuesAt(3_500_000)));
+    }
+
+    @Test
+    public void getCuesAt_cueWithoutDurationLastsUntilNextOne() {
+        SubtitleTimeline timeline = timeline("test://unset",
+                cues("a", 1_000_000, C.TIME_UNSET),
+                cues("b", 4_000_000, C.TIME_UNSET));
+
+        assertEquals(Collections.singletonList("a"), texts(timeline.getCuesAt(3_999_999)));
+        assertEquals(Collections.singletonList("b"), texts(timeline.getCuesAt(4_000_000)));
+        assertEquals(Collections.singletonList("b"), texts(timeline.getCuesAt(Long.MAX_VALUE - 1)));
+    }
+
+    @Test
+    public void getCuesAt_negativeTimeHasNoCue() {
+        SubtitleTimeline timeline = timeline("test://negative", cues("a", 0, 1_000_000));
+
+        assertEquals(Collections.emptyList(), texts(timeline.getCuesAt(-1)));
+        assertEquals(Collections.singletonList("a"), texts(timeline.getCuesAt(0)));
+    }
+
+    @Test
+    public void getNextChangeTimeUs_returnsNextStartOrEnd() {
+        SubtitleTimeline timeline = timeline("test://changes",
+                cues("a", 1_000_000, 5_000_000),
+                cues("b", 2_000_000, 1_000_000));
+
+        assertEquals(1_000_000, timeline.getNextChangeTimeUs(-500_000));
+        assertEquals(2_000_000, timeline.getNextChangeTimeUs(1_000_000));
+        assertEquals(3_000_000, timeline.getNextChangeTimeUs(2_000_000));
+        assertEquals(6_000_000, timeline.getNextChangeTimeUs(3_000_000));
+        assertEquals(C.TIME_UNSET, timeline.getNextChangeTimeUs(6_000_000));
+    }
+
+    @Test
+    public void get_unknownUrlReturnsNull() {
+        assertNull(SubtitleTimeline.get("test://unknown"));
+    }
+}
@@ -0,0 +1,143 @@
+package app.wako.plugins.videoplayer.Notifications;
+
+import static org.junit.Assert.*;
+
+import com.getcapacitor.JSObject;
+
+import org.json.JSONArray;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Local unit tests of the coalescing and batching of {@link EventDispatcher}.
+ * The window timer is a fake one, the end of a window is run by hand.
+ */
+public class EventDispatcherTest {
+
+    private final List<String> sentNames = new ArrayList<>();
+    private final List<JSObject> sentData = new ArrayList<>();
+    private final FakeWindowTimer windowTimer = new FakeWindowTimer();
+    private EventDispatcher dispatcher;
+
+    private static class FakeWindowTimer implements EventDispatcher.WindowTimer {
+        Runnable scheduled;
+        long delayMs;
+
+        @Override
+        public void schedule(Runnable runnable, long delayMs) {
+            this.scheduled = runnable;
+            this.delayMs = delayMs;
+        }
+
+        @Override
+        public void cancel(Runnable runnable) {
+            if (runnable == scheduled) {
+                scheduled = null;
+            }
+        }
+
+        void endWindow() {
+            assertNotNull("No window scheduled", scheduled);
+            Runnable runnable = scheduled;
+            scheduled = null;
+            runnable.run();
+        }
+    }
+
+    @Before
+    public void setUp() {
+        dispatcher = new EventDispatcher((eventName, data) -> {
+            sentNames.add(eventName);
+            sentData.add(data);
+        }, windowTimer);
+    }
+
+    private static JSObject payload(String value) {
+        JSObject data = new JSObject();
+        data.put("value", value);
+        return data;
+    }
+
+    @Test
+    public void withoutWindow_sendsEveryEventAtOnce() {
+        dispatcher.configure(0, false);
+        dispatcher.dispatch("playerQoE", payload("1"));
+        dispatcher.dispatch("playerQoE", payload("2"));
+
+        assertEquals(Arrays.asList("playerQoE", "playerQoE"), sentNames);
+        assertNull(windowTimer.scheduled);
+    }
+
+    @Test
+    public void withinWindow_keepsLatestEventOfEachKind() {
+        dispatcher.configure(100, false);
+        dispatcher.dispatch("playerQoE", payload("1"));
+        dispatcher.dispatch("playerTracksChanged", payload("a"));
+        dispatcher.dispatch("playerQoE", payload("2"));
+        assertTrue(sentNames.isEmpty());
+        assertEquals(100, windowTimer.delayMs);
+
+        windowTimer.endWindow();
+        // The latest event moves after the others, as if it had just been posted
+        assertEquals(Arrays.asList("playerTracksChanged", "playerQoE"), sentNames);
+        assertEquals("2", sentData.get(1).getString("value"));
+    }
+
+    @Test
+    public void playAndPause_areMergedTogether() {
+        dispatcher.configure(100, false);
+        dispatcher.dispatch("playerPlay", payload("1"));
+        dispatcher.dispatch("playerPause", payload("2"));
+        windowTimer.endWindow();
+
+        assertEquals(Arrays.asList("playerPause"), sentNames);
+    }
+
+    @Test
+    public void otherEvent_flushesPendingEventsFirst() {
+        dispatcher.configure(100, false);
+        dispatcher.dispatch("playerQoE", payload("1"));
+        dispatcher.dispatch("playerStateReady", payload("ready"));
+
+        assertEquals(Arrays.asList("playerQoE", "playerStateReady"), sentNames);
+        assertNull("The flush cancels the window", windowTimer.scheduled);
+    }
+
+    @Test
+    public void batching_sendsWindowAsOneEvent() throws Exception {
+        dispatcher.configure(100, true);
+        dispatcher.dispatch("playerQoE", payload("1"));
+        dispatcher.dispatch("playerTracksChanged", payload("a"));
+        windowTimer.endWindow();
+
+        assertEquals(Arrays.asList(EventDispatcher.BATCH_EVENT), sentNames);
+        JSONArray events = sentData.get(0).getJSONArray("events");
+        assertEquals(2, events.length());
+        assertEquals("playerQoE", events.getJSONObject(0).getString("eventName"));
+        assertEquals("a", events.getJSONObject(1).getJSONObject("data").getString("value"));
+    }
+
+    @Test
+    public void batching_sendsSingleEventAsItself() {
+        dispatcher.configure(100, true);
+        dispatcher.dispatch("playerQoE", payload("1"));
+        windowTimer.endWindow();
+
+        assertEquals(Arrays.asList("playerQoE"), sentNames);
+    }
+
+    @Test
+    public void cancel_dropsPendingEvents() {
+        dispatcher.configure(100, false);
+        dispatcher.dispatch("playerQoE", payload("1"));
+        dispatcher.cancel();
+        assertNull(windowTimer.scheduled);
+        dispatcher.flush();
+
+        assertTrue(sentNames.isEmpty());
+    }
+}
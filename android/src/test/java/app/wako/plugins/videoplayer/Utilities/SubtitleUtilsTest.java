@@ -0,0 +1,58 @@
+package app.wako.plugins.videoplayer.Utilities;
+
+import static org.junit.Assert.*;
+
+import androidx.media3.common.MimeTypes;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Local unit tests of the subtitle format detection of {@link SubtitleUtils}.
+ */
+public class SubtitleUtilsTest {
+
+    private static String sniff(String head) {
+        return SubtitleUtils.sniffSubtitleMime(head.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void sniff_webVtt() {
+        assertEquals(MimeTypes.TEXT_VTT, sniff("WEBVTT\n\n00:00:01.000 --> 00:00:02.000\nHello"));
+        assertEquals(MimeTypes.TEXT_VTT, sniff("\uFEFF\n\nWEBVTT - Title\n"));
+    }
+
+    @Test
+    public void sniff_ssa() {
+        assertEquals(MimeTypes.TEXT_SSA, sniff("[Script Info]\nScriptType: v4.00+\n"));
+        assertEquals(MimeTypes.TEXT_SSA, sniff("\uFEFF[script info]\n"));
+    }
+
+    @Test
+    public void sniff_ttml() {
+        assertEquals(MimeTypes.APPLICATION_TTML,
+                sniff("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<tt xmlns=\"http://www.w3.org/ns/ttml\">"));
+        assertEquals(MimeTypes.APPLICATION_TTML, sniff("<tt xmlns=\"http://www.w3.org/ns/ttml\" xml:lang=\"en\">"));
+    }
+
+    @Test
+    public void sniff_subRip() {
+        assertEquals(MimeTypes.APPLICATION_SUBRIP, sniff("1\n00:00:01,000 --> 00:00:02,000\nHello\n"));
+        assertEquals(MimeTypes.APPLICATION_SUBRIP, sniff("\uFEFF1\r\n0:00:01.000 --> 0:00:02.000\r\n"));
+    }
+
+    @Test
+    public void sniff_rejectsErrorPagesAndOtherXml() {
+        assertNull(sniff("<!DOCTYPE html>\n<html><body>404 Not Found</body></html>"));
+        assertNull(sniff("<html><head><title>Error</title></head></html>"));
+        assertNull(sniff("<?xml version=\"1.0\"?>\n<Error><Code>AccessDenied</Code></Error>"));
+    }
+
+    @Test
+    public void sniff_rejectsUnknownContent() {
+        assertNull(sniff(""));
+        assertNull(sniff("{\"error\": \"not found\"}"));
+        assertNull(SubtitleUtils.sniffSubtitleMime(new byte[] {0x1f, (byte) 0x8b, 0x08, 0x00}));
+    }
+}
@@ -91,6 +91,52 @@ export interface WakoCapacitorVideoPlayerPlugin {
    *
    */
   exitPlayer(): Promise<capVideoPlayerResult>;
+  /**
+   * Get the media cache statistics (Android)
+   * value: { enabled, hits, misses, bytesSaved, bytesDownloaded, cacheSizeBytes, maxCacheSizeBytes }
+   *
+   */
+  getCacheStats(): Promise<capVideoPlayerResult>;
+  /**
+   * Start loading a video in the background so that a following initPlayer
+   * with the same url and subtitles starts playing without waiting (Android)
+   * The manifest, the subtitles and the first segments are loaded, the buffer is capped
+   * to a few seconds until initPlayer so that the current video is not slowed down
+   * Resolves once the first segments are buffered, result is false with a message when it failed
+   *
+   */
+  preload(options: capVideoPreloadOptions): Promise<capVideoPlayerResult>;
+  /**
+   * Apply a list of commands in order in a single call (Android)
+   * value: the result of each command, result is true when all succeeded
+   *
+   */
+  execute(options: capVideoExecuteOptions): Promise<capVideoPlayerResult>;
+  /**
+   * Get a consistent snapshot of the player state in a single call (Android)
+   * value: PlayerState
+   *
+   */
+  getState(): Promise<capVideoPlayerResult>;
+  /**
+   * Select an external subtitle by url, fetching it first if lazySubtitles left it unloaded (Android)
+   * Attaching an unloaded subtitle prepares the media again: playback rebuffers briefly from the current position
+   * A subtitle that cannot be read, is not recognized or takes more than 2s to prepare stays unloaded
+   *
+   */
+  selectExternalSubtitle(options: capVideoExternalSubtitleOptions): Promise<capVideoPlayerResult>;
+  /**
+   * Shift the external subtitle being displayed, applied immediately (Android)
+   * value: the offset applied in ms
+   *
+   */
+  setSubtitleOffset(options: capVideoSubtitleOffsetOptions): Promise<capVideoPlayerResult>;
+  /**
+   * Stretch the timing of the external subtitle being displayed, e.g. for a file made for another frame rate (Android)
+   * value: the rate applied, clamped to [0.5, 2]
+   *
+   */
+  setSubtitleRate(options: capVideoRateOptions): Promise<capVideoPlayerResult>;
   /**
    * Listen for changes in the App's active state (whether the app is in the foreground or background)
    *
@@ -107,14 +153,26 @@ export interface WakoCapacitorVideoPlayerPlugin {
   addListener(eventName: 'playerExit', listenerFunc: PlayerExit): Promise<PluginListenerHandle>;
 
   addListener(eventName: 'playerTracksChanged', listenerFunc: PlayerTracksChanged): Promise<PluginListenerHandle>;
+
+  addListener(eventName: 'playerStartupMetrics', listenerFunc: PlayerStartupMetrics): Promise<PluginListenerHandle>;
+
+  addListener(eventName: 'playerQoE', listenerFunc: PlayerQoE): Promise<PluginListenerHandle>;
+
+  addListener(eventName: 'playerEventBatch', listenerFunc: PlayerEventBatch): Promise<PluginListenerHandle>;
+
+  addListener(eventName: 'playerTimeUpdate', listenerFunc: PlayerTimeUpdate): Promise<PluginListenerHandle>;
 }
 
-export type PlayerReady = (event: capVideoListener) => void;
+export type PlayerReady = (event: capVideoReadyListener) => void;
 export type PlayerPlay = (event: capVideoListener) => void;
 export type PlayerPause = (event: capVideoListener) => void;
 export type PlayerEnded = (event: capVideoListener) => void;
 export type PlayerExit = (event: capExitListener) => void;
 export type PlayerTracksChanged = (event: TracksChangedInfo) => void;
+export type PlayerStartupMetrics = (event: StartupMetrics) => void;
+export type PlayerQoE = (event: QoEMetrics) => void;
+export type PlayerEventBatch = (event: EventBatch) => void;
+export type PlayerTimeUpdate = (event: TimeUpdateInfo) => void;
 
 export interface capEchoOptions {
   /**
@@ -142,6 +200,7 @@ export interface capVideoPlayerOptions {
   }[];
   /**
    * The default audio language to select, if not found will select the subtitle with the same language if available
+   * 2 and 3 letter codes match each other on Android, e.g. fr, fre and fra
    */
   preferredLocale?: string;
   /**
@@ -188,6 +247,7 @@ export interface capVideoPlayerOptions {
 
   /**
    * Locale of the subtitle track to select (if subtitleTrackId not found)
+   * 2 and 3 letter codes match each other on Android, e.g. fr, fre and fra
    */
   subtitleLocale?: string;
 
@@ -198,6 +258,7 @@ export interface capVideoPlayerOptions {
 
   /**
    * Locale of the audio track to select (if audioTrackId not found)
+   * 2 and 3 letter codes match each other on Android, e.g. fr, fre and fra
    */
   audioLocale?: string;
 
@@ -205,8 +266,124 @@ export interface capVideoPlayerOptions {
    * Start time of the video
    */
   startAtSec?: number;
+
+  /**
+   * Maximum size in MB of the on-disk media cache shared by all players (Android)
+   * The size is fixed once the cache has been created, 0 disables the cache
+   * default: 256
+   */
+  cacheSizeMb?: number;
+
+  /**
+   * Number of idle players kept initialized to be reused by the next video (Android)
+   * 0 disables the pool
+   * default: 1
+   */
+  playerPoolSize?: number;
+
+  /**
+   * Buffering policy of the player (Android)
+   * ["lowLatency", "balanced", "aggressivePrefetch", "lowMemory", "auto"]
+   * "auto" picks "lowMemory" on low-RAM devices and "balanced", the player defaults, everywhere else
+   * "aggressivePrefetch" is only used when requested
+   * default: "auto"
+   */
+  bufferProfile?: 'lowLatency' | 'balanced' | 'aggressivePrefetch' | 'lowMemory' | 'auto';
+
+  /**
+   * Interval in ms between two playerQoE events, 0 disables them (Android)
+   * The summary is still sent with playerExit
+   * default: 10000
+   */
+  qoeIntervalMs?: number;
+
+  /**
+   * Interval in ms between two playerTimeUpdate events while playing (Android)
+   * Clamped to [250, 5000], 0 disables the event
+   * default: 0
+   */
+  timeUpdateIntervalMs?: number;
+
+  /**
+   * Only load the external subtitles matching subtitleTrackId, subtitleLocale or preferredLocale (Android)
+   * The other ones are listed in getState().externalSubtitles and fetched by selectExternalSubtitle
+   * Selecting one of them later prepares the media again, see selectExternalSubtitle
+   * default: false
+   */
+  lazySubtitles?: boolean;
+
+  /**
+   * Switch audio tracks requested with selectTracks after startup without dropping the video buffer (Android)
+   * The video selection is kept, only the audio is fetched again from the current position.
+   * The latency is reported in playerTracksChanged, false falls back to the language-based selection
+   * default: true
+   */
+  seamlessAudioSwitch?: boolean;
+
+  /**
+   * Window in ms during which bursts of the same event are merged into the latest one (Android)
+   * Applies to playerPlay/playerPause (merged together), playerTracksChanged, playerQoE and playerTimeUpdate
+   * 0 disables coalescing
+   * default: 0
+   */
+  eventCoalescingMs?: number;
+
+  /**
+   * Send the events of a coalescing window as one playerEventBatch event (Android)
+   * default: false
+   */
+  eventBatching?: boolean;
+}
+
+export interface capVideoPreloadOptions {
+  /**
+   * The url of the video to preload
+   */
+  url: string;
+  /**
+   * The subtitle(s) that will be passed to initPlayer, see capVideoPlayerOptions
+   */
+  subtitles?: {
+    url: string;
+    name?: string;
+    lang?: string;
+  }[];
+  /**
+   * The position in seconds to start buffering from
+   * default: 0
+   */
+  startAtSec?: number;
 }
 
+export interface capVideoExecuteOptions {
+  /**
+   * The commands to apply, in order
+   */
+  commands: capVideoCommand[];
+}
+
+/**
+ * A command of execute, the options are the ones of the method with the same name
+ */
+export type capVideoCommand =
+  | { method: 'play' }
+  | { method: 'pause' }
+  | { method: 'setCurrentTime'; seektime: number }
+  | { method: 'setVolume'; volume: number }
+  | { method: 'setMuted'; muted: boolean }
+  | { method: 'setRate'; rate: number }
+  | {
+      method: 'selectTracks';
+      subtitleTrackId?: string;
+      subtitleLocale?: string;
+      audioTrackId?: string;
+      audioLocale?: string;
+    }
+  | { method: 'selectExternalSubtitle'; url: string }
+  | { method: 'setSubtitleOffset'; ms: number }
+  | { method: 'setSubtitleRate'; rate: number }
+  | { method: 'isPlaying' | 'getCurrentTime' | 'getDuration' | 'getVolume' | 'getMuted' | 'getRate' };
+
 export interface capVideoRateOptions {
   /**
    * Rate value
@@ -232,6 +409,21 @@ export interface capVideoMutedOptions {
   muted?: boolean;
 }
 
+export interface capVideoExternalSubtitleOptions {
+  /**
+   * Url of one of the subtitles given to initPlayer
+   */
+  url: string;
+}
+
+export interface capVideoSubtitleOffsetOptions {
+  /**
+   * Delay of the subtitles in ms, negative to show them earlier
+   * A cue at t in the file is shown at t * subtitleRate + ms
+   */
+  ms: number;
+}
+
 export interface capVideoSubtitlesOptions {
   /**
    * Enable or disable subtitles
@@ -245,6 +437,16 @@ export interface capVideoListener {
    */
   currentTime?: number;
 }
+export interface capVideoReadyListener extends capVideoListener {
+  /**
+   * Bandwidth estimate in bits per second when playback became ready (Android)
+   */
+  bandwidthEstimate?: number;
+  /**
+   * Persisted estimate of the current network type (wifi, cellular, ethernet) the player started from, 0 if none (Android)
+   */
+  storedBandwidthEstimate?: number;
+}
 export interface capExitListener {
   /**
    * Dismiss value true or false
@@ -254,6 +456,10 @@ export interface capExitListener {
    * Video current time when listener trigerred
    */
   currentTime?: number;
+  /**
+   * Quality of experience summary of the session (Android)
+   */
+  qoe?: QoEMetrics;
 }
 export interface capVideoPlayerResult {
   /**
@@ -304,4 +510,134 @@ export interface TracksChangedInfo {
   fromPlayerId: string;
   audioTrack?: TrackInfo;
   subtitleTrack?: TrackInfo;
+  /**
+   * Set once the audio of a switch requested with selectTracks reaches the decoder, time from the request in ms (Android)
+   */
+  audioSwitchLatencyMs?: number;
+  /**
+   * Whether playback stalled during that audio switch (Android)
+   */
+  audioSwitchRebuffered?: boolean;
+  /**
+   * Whether the video buffer was kept during that audio switch (Android)
+   */
+  audioSwitchVideoKept?: boolean;
+}
+
+/**
+ * Startup timeline of a video (Android)
+ * Each phase is the time in ms elapsed since initPlayer was called,
+ * phases that did not happen are missing
+ */
+export interface StartupMetrics {
+  pluginCall?: number;
+  fragmentAttached?: number;
+  initializePlayerBegin?: number;
+  initializePlayerEnd?: number;
+  manifestLoaded?: number;
+  firstSegmentLoaded?: number;
+  rendererReady?: number;
+  firstFrameRendered?: number;
+  stateReady?: number;
+  /**
+   * Time until both the first frame is rendered and the player is ready, or until the
+   * last phase reached when the startup failed or no frame followed the ready state
+   */
+  totalMs: number;
+  /**
+   * Whether the video had been preloaded, network phases are then missing
+   */
+  preloaded: boolean;
+  /**
+   * The error code name when the player failed during startup
+   */
+  error?: string;
+}
+
+/**
+ * Quality of experience metrics of the current session (Android)
+ * Durations are in ms, bitrates in bits per second
+ */
+export interface QoEMetrics {
+  sessionDurationMs: number;
+  /**
+   * Time from player initialization to the first ready state, -1 if not reached yet
+   */
+  joinTimeMs: number;
+  playingTimeMs: number;
+  /**
+   * Stalls during playback, initial load and seeks excluded
+   */
+  rebufferCount: number;
+  rebufferDurationMs: number;
+  rebufferRatio: number;
+  bitrateSwitches: number;
+  currentBitrate: number;
+  /**
+   * Video bitrate weighted by the time played at each bitrate
+   */
+  averageBitrate: number;
+  droppedFrames: number;
+  errorCount: number;
+  loadErrorCount: number;
+}
+
+/**
+ * Events merged in one bridge message when eventBatching is enabled (Android)
+ */
+export interface EventBatch {
+  events: BatchedEvent[];
+}
+
+/**
+ * An event of a batch, only the coalesced events are batched
+ */
+export type BatchedEvent =
+  | { eventName: 'playerPlay' | 'playerPause'; data: capVideoListener }
+  | { eventName: 'playerTracksChanged'; data: TracksChangedInfo }
+  | { eventName: 'playerQoE'; data: QoEMetrics }
+  | { eventName: 'playerTimeUpdate'; data: TimeUpdateInfo };
+
+/**
+ * Playback position pushed while playing, and once when playback stops (Android)
+ * Times are in seconds
+ */
+export interface TimeUpdateInfo {
+  currentTime: number;
+  bufferedTime: number;
+  duration: number;
+  isLive: boolean;
+}
+
+/**
+ * Snapshot of the player returned by getState (Android)
+ * Times are in seconds
+ */
+export interface PlayerState {
+  isPlaying?: boolean;
+  currentTime?: number;
+  bufferedTime?: number;
+  duration?: number;
+  volume?: number;
+  muted?: boolean;
+  rate?: number;
+  playbackState: 'idle' | 'buffering' | 'ready' | 'ended';
+  audioTrackId?: string;
+  subtitleTrackId?: string;
+  isLive?: boolean;
+  isCasting: boolean;
+  externalSubtitles?: ExternalSubtitleState[];
+  subtitleOffsetMs?: number;
+  subtitleRate?: number;
+}
+
+/**
+ * External subtitle of the video, loaded is false until selected when lazySubtitles is set (Android)
+ * It is also false when the subtitle took more than 2s to prepare at startup, selecting it fetches it again
+ */
+export interface ExternalSubtitleState {
+  url: string;
+  name?: string;
+  lang?: string;
+  loaded: boolean;
 }
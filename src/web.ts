@@ -10,6 +10,10 @@ import type {
   capVideoPlayerResult,
   capVideoSubtitlesOptions,
   capEchoOptions,
+  capVideoPreloadOptions,
+  capVideoExecuteOptions,
+  capVideoExternalSubtitleOptions,
+  capVideoSubtitleOffsetOptions,
 } from './definitions';
 import { VideoPlayer } from './web-utils/videoplayer';
 
@@ -392,6 +396,94 @@ export class CapacitorVideoPlayerWeb extends WebPlugin implements WakoCapacitorV
     });
   }
 
+  /**
+   * Get the media cache statistics
+   */
+  async getCacheStats(): Promise<capVideoPlayerResult> {
+    return Promise.resolve({
+      method: 'getCacheStats',
+      result: false,
+      message: 'Media cache is not available on Web Platform',
+    });
+  }
+
+  /**
+   * Get the player state
+   *
+   */
+  async getState(): Promise<capVideoPlayerResult> {
+    return Promise.resolve({
+      method: 'getState',
+      result: false,
+      message: 'getState is not available on Web Platform',
+    });
+  }
+
+  /**
+   * Select an external subtitle
+   *
+   * @param options
+   */
+  async selectExternalSubtitle(options: capVideoExternalSubtitleOptions): Promise<capVideoPlayerResult> {
+    return Promise.resolve({
+      method: 'selectExternalSubtitle',
+      result: false,
+      message: `Selecting subtitle ${options.url} is not available on Web Platform`,
+    });
+  }
+
+  /**
+   * Shift the subtitles
+   *
+   * @param options
+   */
+  async setSubtitleOffset(options: capVideoSubtitleOffsetOptions): Promise<capVideoPlayerResult> {
+    return Promise.resolve({
+      method: 'setSubtitleOffset',
+      result: false,
+      message: `Subtitle offset of ${options.ms}ms is not available on Web Platform`,
+    });
+  }
+
+  /**
+   * Stretch the subtitle timing
+   *
+   * @param options
+   */
+  async setSubtitleRate(options: capVideoRateOptions): Promise<capVideoPlayerResult> {
+    return Promise.resolve({
+      method: 'setSubtitleRate',
+      result: false,
+      message: `Subtitle rate of ${options.rate} is not available on Web Platform`,
+    });
+  }
+
+  /**
+   * Apply a list of commands
+   *
+   * @param options
+   */
+  async execute(options: capVideoExecuteOptions): Promise<capVideoPlayerResult> {
+    return Promise.resolve({
+      method: 'execute',
+      result: false,
+      message: `Execute of ${options.commands.length} commands is not available on Web Platform`,
+    });
+  }
+
+  /**
+   * Preload a video
+   *
+   * @param options
+   */
+  async preload(options: capVideoPreloadOptions): Promise<capVideoPlayerResult> {
+    return Promise.resolve({
+      method: 'preload',
+      result: false,
+      message: `Preload of ${options.url} is not available on Web Platform`,
+    });
+  }
+
   /**
    * Enable or disable subtitles
    *